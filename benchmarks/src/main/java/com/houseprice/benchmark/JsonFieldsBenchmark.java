@@ -0,0 +1,57 @@
+package com.houseprice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.houseprice.util.JsonFields;
+
+/**
+ * JsonFields.get on payloads shaped like the /predict form posts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonFieldsBenchmark {
+
+    private final String residential = "{\"type\":\"RESIDENTIAL\",\"address\":\"123 MG Road, Mumbai\","
+            + "\"area\":\"2000\",\"yearBuilt\":\"2015\",\"bedrooms\":\"3\",\"bathrooms\":\"2\","
+            + "\"garage\":\"on\",\"garden\":\"on\"}";
+
+    private final String commercial = "{\"type\": \"COMMERCIAL\", \"address\": \"45 Brigade Road, Bengaluru\", "
+            + "\"area\": \"5400\", \"yearBuilt\": \"2009\", \"rentIncome\": \"500000\", \"parking\": \"5\"}";
+
+    @Benchmark
+    public void residentialRequest(Blackhole blackhole) {
+        blackhole.consume(JsonFields.get(residential, "type"));
+        blackhole.consume(JsonFields.get(residential, "address"));
+        blackhole.consume(JsonFields.get(residential, "area"));
+        blackhole.consume(JsonFields.get(residential, "yearBuilt"));
+    }
+
+    @Benchmark
+    public void commercialRequest(Blackhole blackhole) {
+        blackhole.consume(JsonFields.get(commercial, "type"));
+        blackhole.consume(JsonFields.get(commercial, "address"));
+        blackhole.consume(JsonFields.get(commercial, "area"));
+        blackhole.consume(JsonFields.get(commercial, "yearBuilt"));
+        blackhole.consume(JsonFields.get(commercial, "rentIncome", "500000"));
+    }
+
+    @Benchmark
+    public String missingKeyWithDefault() {
+        return JsonFields.get(residential, "loadCapacity", "500");
+    }
+}
@@ -0,0 +1,71 @@
+package com.houseprice.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.houseprice.exception.HousePriceException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.service.PricePredictionEngine;
+
+/**
+ * getCachedPredictions as the number of cached properties grows
+ * Lookup cost should stay flat in cache size; the 4-thread variant shows lock contention
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PredictionCacheBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int cachedProperties;
+
+    private PricePredictionEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws HousePriceException {
+        System.setProperty("memo.enabled", "false");
+        engine = new PricePredictionEngine(2, cachedProperties, 0);
+        for (int i = 0; i < cachedProperties; i++) {
+            engine.predictPrice(SampleData.property(i, i % 3));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<PredictionResult> getCachedPredictions(Cursor cursor) {
+        return engine.getCachedPredictions(1 + cursor.next++ % cachedProperties);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<PredictionResult> getCachedPredictionsContended(Cursor cursor) {
+        return engine.getCachedPredictions(1 + cursor.next++ % cachedProperties);
+    }
+}
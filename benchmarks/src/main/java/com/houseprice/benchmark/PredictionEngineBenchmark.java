@@ -0,0 +1,80 @@
+package com.houseprice.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.houseprice.exception.HousePriceException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.service.PricePredictionEngine;
+
+/**
+ * PricePredictionEngine.predictPriceAsync and predictBatch at varying pool sizes
+ * predictPrice is left out: it runs the cheap built-in algorithms on the caller
+ * thread, so the pool size would not affect it. The feature memo is disabled so
+ * every call runs the algorithms.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PredictionEngineBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int poolSize;
+
+    @Param({"1000"})
+    private int portfolioSize;
+
+    private PricePredictionEngine engine;
+    private List<Property> portfolio;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("memo.enabled", "false");
+        engine = new PricePredictionEngine(poolSize, 100, 0);
+        portfolio = new ArrayList<>(portfolioSize);
+        for (int i = 0; i < portfolioSize; i++) {
+            portfolio.add(SampleData.property(i, i % 3));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<PredictionResult> predictPriceAsync(Cursor cursor) {
+        Property property = portfolio.get(cursor.next++ % portfolioSize);
+        return engine.predictPriceAsync(property).join();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<List<PredictionResult>> predictBatch() throws HousePriceException {
+        return engine.predictBatch(portfolio, 64);
+    }
+}
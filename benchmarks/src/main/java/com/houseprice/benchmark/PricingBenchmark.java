@@ -0,0 +1,70 @@
+package com.houseprice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+
+/**
+ * calculatePrice() over a portfolio whose call site sees one, two or three receiver types
+ * Each fork profiles a single shape, so the JIT sees a clean mono-, bi- or megamorphic site
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PricingBenchmark {
+
+    @Param({"monomorphic", "bimorphic", "megamorphic"})
+    private String shape;
+
+    @Param({"10000"})
+    private int size;
+
+    private Property[] portfolio;
+
+    @Setup
+    public void setUp() {
+        int types = "monomorphic".equals(shape) ? 1 : "bimorphic".equals(shape) ? 2 : 3;
+        portfolio = new Property[size];
+        for (int i = 0; i < size; i++) {
+            portfolio[i] = SampleData.property(i, i % types);
+        }
+    }
+
+    @Benchmark
+    public double calculatePrice() {
+        double sum = 0;
+        for (Property property : portfolio) {
+            sum += property.calculatePrice();
+        }
+        return sum;
+    }
+
+    /**
+     * Baseline without dispatch: the static residential formula over the same field values
+     */
+    @Benchmark
+    public double staticFormula() {
+        double sum = 0;
+        for (Property property : portfolio) {
+            sum += ResidentialProperty.calculatePrice(property.getArea(), property.getBedrooms(),
+                    property.getYearBuilt(), true, false);
+        }
+        return sum;
+    }
+}
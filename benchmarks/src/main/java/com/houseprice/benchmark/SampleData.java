@@ -0,0 +1,39 @@
+package com.houseprice.benchmark;
+
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+
+/**
+ * Deterministic synthetic properties shared by the benchmarks
+ */
+final class SampleData {
+
+    private SampleData() {
+    }
+
+    /**
+     * Build the i-th sample property of the given type (0 residential, 1 commercial, 2 industrial)
+     */
+    static Property property(int i, int type) {
+        double area = 800 + (i * 37) % 9000;
+        int yearBuilt = 1950 + (i * 13) % 74;
+        Property property;
+        switch (type) {
+            case 1:
+                property = new CommercialProperty("Unit " + i + " Business Ave", area, 0, 1 + i % 3,
+                        yearBuilt, 1000 + (i * 97) % 20000, i % 2 == 0, 1 + i % 10);
+                break;
+            case 2:
+                property = new IndustrialProperty("Lot " + i + " Factory Rd", area * 3, 0, 1,
+                        yearBuilt, 100 + (i * 31) % 900, i % 3 == 0, "HEAVY");
+                break;
+            default:
+                property = new ResidentialProperty(i + " Oak Street", area, 1 + i % 6, 1 + i % 4,
+                        yearBuilt, 1 + i % 3, i % 2 == 0, i % 5 == 0);
+        }
+        property.setPropertyId(i + 1);
+        return property;
+    }
+}
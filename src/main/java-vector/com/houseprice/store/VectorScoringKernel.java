@@ -0,0 +1,171 @@
+package com.houseprice.store;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD scoring backend built on jdk.incubator.vector
+ * Compiled only with the vector Maven profile and loaded reflectively by ScoringKernels.
+ * Each lane performs the same IEEE operations in the same order as the scalar
+ * formulas (no fused multiply-add), so results are bit-identical to ScalarScoringKernel.
+ * Columns the models hold as int (bedrooms, bathrooms, yearBuilt) are cast like (int)
+ * and their products computed with int wraparound in long lanes; flags count as set
+ * when non-zero. Tails shorter than one vector are finished with the scalar single-row formulas.
+ */
+public class VectorScoringKernel implements ScoringKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // Same shape and lane count as SPECIES
+    private static final VectorSpecies<Long> LONGS = SPECIES.withLanes(long.class);
+
+    @Override
+    public void residentialPrices(double[] area, double[] bedrooms, double[] yearBuilt,
+                                  double[] hasGarage, double[] hasGarden, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector basePrice = DoubleVector.fromArray(SPECIES, area, i).mul(1500.0);
+            DoubleVector pricePerBedroom = intProduct(bedrooms, i, 50000);
+            DoubleVector ageDiscount = ageProduct(yearBuilt, i, 1000);
+            DoubleVector garageBonus = flag(hasGarage, i, 20000.0);
+            DoubleVector gardenBonus = flag(hasGarden, i, 15000.0);
+
+            basePrice.add(pricePerBedroom).add(garageBonus).add(gardenBonus).sub(ageDiscount)
+                    .max(floor(50000.0))
+                    .intoArray(out, i);
+        }
+        for (int i = bound; i < length; i++) {
+            out[i] = ScalarScoringKernel.residential(area[i], bedrooms[i], yearBuilt[i], hasGarage[i], hasGarden[i]);
+        }
+    }
+
+    @Override
+    public void commercialPrices(double[] area, double[] yearBuilt, double[] rentIncome,
+                                 double[] hasParking, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector basePrice = DoubleVector.fromArray(SPECIES, area, i).mul(2000.0);
+            DoubleVector rentMultiplier = DoubleVector.fromArray(SPECIES, rentIncome, i).mul(12.0);
+            DoubleVector parkingBonus = flag(hasParking, i, 50000.0);
+            DoubleVector ageDiscount = ageProduct(yearBuilt, i, 500);
+
+            basePrice.add(rentMultiplier.mul(8.0)).add(parkingBonus).sub(ageDiscount)
+                    .max(floor(100000.0))
+                    .intoArray(out, i);
+        }
+        for (int i = bound; i < length; i++) {
+            out[i] = ScalarScoringKernel.commercial(area[i], yearBuilt[i], rentIncome[i], hasParking[i]);
+        }
+    }
+
+    @Override
+    public void industrialPrices(double[] area, double[] yearBuilt, double[] loadCapacity,
+                                 double[] hasLoding, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector basePrice = DoubleVector.fromArray(SPECIES, area, i).mul(800.0);
+            DoubleVector loadBonus = DoubleVector.fromArray(SPECIES, loadCapacity, i).mul(100.0);
+            DoubleVector lodingBonus = flag(hasLoding, i, 75000.0);
+            DoubleVector ageDiscount = ageProduct(yearBuilt, i, 800);
+
+            basePrice.add(loadBonus).add(lodingBonus).sub(ageDiscount)
+                    .max(floor(50000.0))
+                    .intoArray(out, i);
+        }
+        for (int i = bound; i < length; i++) {
+            out[i] = ScalarScoringKernel.industrial(area[i], yearBuilt[i], loadCapacity[i], hasLoding[i]);
+        }
+    }
+
+    @Override
+    public void featurePrices(double[] area, double[] bedrooms, double[] bathrooms, double[] yearBuilt,
+                              double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector basePrice = DoubleVector.fromArray(SPECIES, area, i).mul(1200.0);
+            DoubleVector bedroomFactor = intProduct(bedrooms, i, 35000);
+            DoubleVector bathroomFactor = intProduct(bathrooms, i, 15000);
+            DoubleVector ageFactor = ageProduct(yearBuilt, i, -800);
+
+            basePrice.add(bedroomFactor).add(bathroomFactor).add(ageFactor).intoArray(out, i);
+        }
+        for (int i = bound; i < length; i++) {
+            out[i] = ScalarScoringKernel.features(area[i], bedrooms[i], bathrooms[i], yearBuilt[i]);
+        }
+    }
+
+    @Override
+    public void scale(double[] prices, double factor, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, prices, i).mul(factor).intoArray(out, i);
+        }
+        for (int i = bound; i < length; i++) {
+            out[i] = prices[i] * factor;
+        }
+    }
+
+    @Override
+    public void linear(double[] x, double a, double[] y, double b, double c, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector xa = DoubleVector.fromArray(SPECIES, x, i).mul(a).add(c);
+            xa.add(DoubleVector.fromArray(SPECIES, y, i).mul(b)).intoArray(out, i);
+        }
+        for (int i = bound; i < length; i++) {
+            out[i] = ScalarScoringKernel.linear(x[i], a, y[i], b, c);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector";
+    }
+
+    /**
+     * (int) column[i] per lane: toward zero, saturating at the int range, NaN to 0
+     */
+    private static LongVector toInt(double[] column, int i) {
+        LongVector truncated = (LongVector) DoubleVector.fromArray(SPECIES, column, i)
+                .convertShape(VectorOperators.D2L, LONGS, 0);
+        return truncated.max(Integer.MIN_VALUE).min(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Keep the low 32 bits sign-extended, so lanes overflow like int arithmetic
+     */
+    private static LongVector wrapInt(LongVector v) {
+        return v.lanewise(VectorOperators.LSHL, 32).lanewise(VectorOperators.ASHR, 32);
+    }
+
+    private static DoubleVector toDouble(LongVector v) {
+        return (DoubleVector) v.convertShape(VectorOperators.L2D, SPECIES, 0);
+    }
+
+    /**
+     * (int) column[i] * factor, evaluated in int
+     */
+    private static DoubleVector intProduct(double[] column, int i, int factor) {
+        return toDouble(wrapInt(toInt(column, i).mul(factor)));
+    }
+
+    /**
+     * (2024 - (int) yearBuilt[i]) * factor, evaluated in int
+     */
+    private static DoubleVector ageProduct(double[] yearBuilt, int i, int factor) {
+        LongVector age = wrapInt(toInt(yearBuilt, i).neg().add(2024));
+        return toDouble(wrapInt(age.mul(factor)));
+    }
+
+    /**
+     * column[i] != 0 ? bonus : 0
+     */
+    private static DoubleVector flag(double[] column, int i, double bonus) {
+        DoubleVector values = DoubleVector.fromArray(SPECIES, column, i);
+        return DoubleVector.zero(SPECIES).blend(bonus, values.compare(VectorOperators.NE, 0.0));
+    }
+
+    private static DoubleVector floor(double minimum) {
+        return DoubleVector.broadcast(SPECIES, minimum);
+    }
+}
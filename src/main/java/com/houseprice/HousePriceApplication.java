@@ -1,5 +1,6 @@
 package com.houseprice;
 
+import com.houseprice.dao.RepositoryFactory;
 import com.houseprice.exception.DatabaseException;
 import com.houseprice.exception.HousePriceException;
 import com.houseprice.exception.ValidationException;
@@ -10,6 +11,7 @@ import com.houseprice.model.Property;
 import com.houseprice.model.ResidentialProperty;
 import com.houseprice.service.PricePredictionEngine;
 import com.houseprice.service.PropertyService;
+import com.houseprice.util.DatabaseConnection;
 
 /**
  * Main Application Class - Demonstrates all OOP concepts
@@ -70,8 +72,8 @@ public class HousePriceApplication {
                     System.out.println("Algorithm: " + pred.getAlgorithm() + 
                                      " | Price: $" + String.format("%.2f", pred.getPredictedPrice()) +
                                      " | Accuracy: " + String.format("%.1f%%", pred.getAccuracy()));
-                    propertyService.savePredictionResult(pred);
                 }
+                propertyService.savePredictionResults(predictions);
             }
 
             // Demonstrate generics with property filtering
@@ -94,6 +96,9 @@ public class HousePriceApplication {
         } catch (Exception e) {
             System.err.println("Unexpected Error: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            RepositoryFactory.close();
+            DatabaseConnection.getInstance().closeConnection();
         }
     }
 }
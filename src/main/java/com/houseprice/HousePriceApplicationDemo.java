@@ -9,6 +9,7 @@ import com.houseprice.model.PredictionResult;
 import com.houseprice.model.Property;
 import com.houseprice.model.ResidentialProperty;
 import com.houseprice.service.PricePredictionEngine;
+import com.houseprice.service.PropertyService;
 
 /**
  * Standalone Demo - Works without database
@@ -17,6 +18,10 @@ import com.houseprice.service.PricePredictionEngine;
 public class HousePriceApplicationDemo {
     
     public static void main(String[] args) {
+        // Persist to the in-process repositories unless a backend was chosen explicitly
+        if (System.getProperty("repository.backend") == null) {
+            System.setProperty("repository.backend", "embedded");
+        }
         System.out.println("\n╔════════════════════════════════════════╗");
         System.out.println("║  House Price Prediction System - Demo  ║");
         System.out.println("║  Compiled with Simple Java (No Maven)  ║");
@@ -86,10 +91,12 @@ public class HousePriceApplicationDemo {
             System.out.println("  Starting 3 prediction algorithms in parallel...\n");
             
             PricePredictionEngine engine = new PricePredictionEngine(4);
+            List<PredictionResult> allPredictions = new ArrayList<>();
             
             for (Property prop : properties) {
                 System.out.println("  Predicting for: " + prop.getAddress());
                 List<PredictionResult> predictions = engine.predictPrice(prop);
+                allPredictions.addAll(predictions);
                 
                 for (PredictionResult pred : predictions) {
                     System.out.printf("    ✓ %s: $%.2f (%.0f%% accurate)\n",
@@ -100,8 +107,24 @@ public class HousePriceApplicationDemo {
                 System.out.println();
             }
 
+            // Persistence through the embedded repositories, no database server needed
+            System.out.println("█ STEP 6: Persistence (Embedded Repository)\n");
+            PropertyService propertyService = new PropertyService();
+            for (Property prop : properties) {
+                propertyService.addProperty(prop);
+            }
+            propertyService.savePredictionResults(allPredictions);
+            System.out.println("  Stored properties: " + propertyService.getTotalPropertiesCount());
+            System.out.println("  Residential by type index: "
+                    + propertyService.getPropertiesByType(ResidentialProperty.class).size());
+            System.out.println("  Predictions for property " + residential.getPropertyId() + ": "
+                    + propertyService.getPredictionResults(residential.getPropertyId()).size());
+            propertyService.shutdown();
+            engine.shutdown();
+            System.out.println();
+
             // Exception handling demonstration
-            System.out.println("█ STEP 6: Exception Handling\n");
+            System.out.println("█ STEP 7: Exception Handling\n");
             try {
                 ResidentialProperty invalidProp = new ResidentialProperty(
                         "", 0, 0, 0, 2000, 0, false, false);
@@ -124,7 +147,7 @@ public class HousePriceApplicationDemo {
             System.out.println("  ✓ Generics: Type-safe filtering <T>");
             System.out.println("  ✓ Streams: map, filter, sum, max");
             System.out.println("  ✓ Multithreading: ExecutorService with 3 concurrent algorithms");
-            System.out.println("  ✓ Interfaces: IRepository pattern (not shown in demo)\n");
+            System.out.println("  ✓ Interfaces: IRepository pattern (embedded backend)\n");
 
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
@@ -3,8 +3,22 @@ package com.houseprice;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import com.houseprice.dao.Page;
+import com.houseprice.dao.RepositoryFactory;
+import com.houseprice.exception.HousePriceException;
+import com.houseprice.model.Property;
+import com.houseprice.service.PropertyService;
+import com.houseprice.store.ScalarScoringKernel;
+import com.houseprice.util.AppConfig;
+import com.houseprice.util.ExecutorFactory;
+import com.houseprice.util.JsonFields;
+import com.houseprice.util.Logger;
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Simple HTTP Server for House Price Prediction
@@ -14,6 +28,7 @@ public class SimpleHttpServer {
     
     private static final int PORT = 9000;
     private static final String CONTEXT = "/";
+    private static final PropertyService propertyService = new PropertyService();
     
     public static void main(String[] args) throws IOException {
         // Create HTTP server
@@ -40,8 +55,23 @@ public class SimpleHttpServer {
             }
         });
         
+        // Handle requests on worker threads instead of the single dispatcher thread
+        ExecutorService executor = ExecutorFactory.newExecutor(AppConfig.getInt("http.threads", 16), "http");
+        server.setExecutor(executor);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            executor.shutdown();
+            propertyService.shutdown();
+            RepositoryFactory.close();
+        }));
+        
+        try {
+            propertyService.warmStart();
+        } catch (HousePriceException e) {
+            Logger.warn("Warm start failed: " + e.getMessage());
+        }
+
         // Start server
-        server.setExecutor(null);
         server.start();
         
         System.out.println("\n╔════════════════════════════════════════╗");
@@ -192,52 +222,114 @@ public class SimpleHttpServer {
         os.close();
     }
     
+    /**
+     * GET /api/properties?after={id}&limit={n}
+     * Keyset-paginated property listing, nextAfter is the cursor for the next page or null on the last one
+     */
     private static void serveProperties(HttpExchange exchange) throws IOException {
-        String json = "{\n" +
-            "  \"properties\": [\n" +
-            "    {\n" +
-            "      \"id\": 1,\n" +
-            "      \"type\": \"RESIDENTIAL\",\n" +
-            "      \"address\": \"123 Oak Street\",\n" +
-            "      \"area\": 2000,\n" +
-            "      \"bedrooms\": 3,\n" +
-            "      \"bathrooms\": 2,\n" +
-            "      \"yearBuilt\": 2015,\n" +
-            "      \"calculatedPrice\": 3176000\n" +
-            "    },\n" +
-            "    {\n" +
-            "      \"id\": 2,\n" +
-            "      \"type\": \"COMMERCIAL\",\n" +
-            "      \"address\": \"456 Business Ave\",\n" +
-            "      \"area\": 5000,\n" +
-            "      \"rentIncome\": 5000,\n" +
-            "      \"yearBuilt\": 2010,\n" +
-            "      \"calculatedPrice\": 10523000\n" +
-            "    },\n" +
-            "    {\n" +
-            "      \"id\": 3,\n" +
-            "      \"type\": \"INDUSTRIAL\",\n" +
-            "      \"address\": \"789 Factory Road\",\n" +
-            "      \"area\": 10000,\n" +
-            "      \"loadCapacity\": 500,\n" +
-            "      \"yearBuilt\": 2005,\n" +
-            "      \"calculatedPrice\": 8109800\n" +
-            "    }\n" +
-            "  ],\n" +
-            "  \"statistics\": {\n" +
-            "    \"totalProperties\": 3,\n" +
-            "    \"totalValue\": 21808800,\n" +
-            "    \"averagePrice\": 7269600,\n" +
-            "    \"highestPrice\": 10523000\n" +
-            "  }\n" +
-            "}";
-        
+        String query = exchange.getRequestURI().getRawQuery();
+        int after;
+        int limit;
+        try {
+            after = Integer.parseInt(queryParam(query, "after", "0"));
+            limit = Integer.parseInt(queryParam(query, "limit", "0"));
+        } catch (NumberFormatException e) {
+            sendJson(exchange, 400, "{\"error\": \"after and limit must be integers\"}");
+            return;
+        }
+
+        Page<Property> page;
+        try {
+            page = propertyService.getPropertiesPage(after, limit);
+        } catch (HousePriceException e) {
+            sendJson(exchange, 503, "{\"error\": " + jsonString(e.getMessage()) + "}");
+            return;
+        }
+
+        StringBuilder json = new StringBuilder("{\n  \"properties\": [");
+        List<Property> properties = page.getItems();
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                .append("    {\"id\": ").append(property.getPropertyId())
+                .append(", \"type\": ").append(jsonString(property.getPropertyType()))
+                .append(", \"address\": ").append(jsonString(property.getAddress()))
+                .append(", \"area\": ").append(property.getArea())
+                .append(", \"bedrooms\": ").append(property.getBedrooms())
+                .append(", \"bathrooms\": ").append(property.getBathrooms())
+                .append(", \"yearBuilt\": ").append(property.getYearBuilt())
+                .append(", \"calculatedPrice\": ").append((long) property.calculatePrice())
+                .append("}");
+        }
+        json.append(properties.isEmpty() ? "],\n" : "\n  ],\n")
+            .append("  \"count\": ").append(page.size()).append(",\n")
+            .append("  \"nextAfter\": ")
+            .append(page.hasMore() ? String.valueOf(page.getLast().getPropertyId()) : "null")
+            .append("\n}");
+
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
-        exchange.sendResponseHeaders(200, json.getBytes().length);
+        exchange.sendResponseHeaders(status, body.length);
         OutputStream os = exchange.getResponseBody();
-        os.write(json.getBytes());
+        os.write(body);
         os.close();
     }
+
+    /**
+     * Get a parameter from a raw query string, or the default when absent or empty
+     */
+    static String queryParam(String rawQuery, String name, String defaultValue) {
+        if (rawQuery == null) {
+            return defaultValue;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                return value.isEmpty() ? defaultValue : value;
+            }
+        }
+        return defaultValue;
+    }
+
+    static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
     
     private static void serve404(HttpExchange exchange) throws IOException {
         String response = "404 Not Found";
@@ -463,10 +555,10 @@ public class SimpleHttpServer {
         String requestBody = sb.toString();
         
         // Extract values using simple string operations
-        String type = extractJsonValue(requestBody, "type");
-        String address = extractJsonValue(requestBody, "address");
-        double area = Double.parseDouble(extractJsonValue(requestBody, "area"));
-        int yearBuilt = Integer.parseInt(extractJsonValue(requestBody, "yearBuilt"));
+        String type = JsonFields.get(requestBody, "type");
+        String address = JsonFields.get(requestBody, "address");
+        double area = Double.parseDouble(JsonFields.get(requestBody, "area"));
+        int yearBuilt = Integer.parseInt(JsonFields.get(requestBody, "yearBuilt"));
         
         // Calculate predictions based on type
         double linear, features, market;
@@ -474,20 +566,19 @@ public class SimpleHttpServer {
         int age = 2025 - yearBuilt;
         double ageDiscount = age * 25000;
         
-        if ("RESIDENTIAL".equals(type)) {
-            linear = (area * 100000) + 5000000 - ageDiscount;
-            features = (area * 95000) + 4800000 - (ageDiscount * 0.8);
-            market = (area * 105000) + 5200000 - (ageDiscount * 1.2);
-        } else if ("COMMERCIAL".equals(type)) {
-            double rentIncome = Double.parseDouble(extractJsonValue(requestBody, "rentIncome", "500000"));
-            linear = (rentIncome * 8) + (area * 150000);
-            features = (rentIncome * 7.5) + (area * 140000);
-            market = (rentIncome * 8.5) + (area * 160000);
-        } else if ("INDUSTRIAL".equals(type)) {
-            double loadCapacity = Double.parseDouble(extractJsonValue(requestBody, "loadCapacity", "500"));
-            linear = (loadCapacity * 10000) + (area * 60000);
-            features = (loadCapacity * 9500) + (area * 55000);
-            market = (loadCapacity * 10500) + (area * 65000);
+        double[][] quote = quoteCoefficients(type);
+        if (quote != null) {
+            double y;
+            if ("RESIDENTIAL".equals(type)) {
+                y = ageDiscount;
+            } else if ("COMMERCIAL".equals(type)) {
+                y = Double.parseDouble(JsonFields.get(requestBody, "rentIncome", "500000"));
+            } else {
+                y = Double.parseDouble(JsonFields.get(requestBody, "loadCapacity", "500"));
+            }
+            linear = quote(area, y, quote[0]);
+            features = quote(area, y, quote[1]);
+            market = quote(area, y, quote[2]);
         } else {
             linear = features = market = basePrice;
         }
@@ -517,33 +608,34 @@ public class SimpleHttpServer {
         os.close();
     }
     
-    private static String extractJsonValue(String json, String key) {
-        return extractJsonValue(json, key, null);
-    }
-    
-    private static String extractJsonValue(String json, String key, String defaultValue) {
-        String searchKey = "\"" + key + "\":";
-        int startIdx = json.indexOf(searchKey);
-        if (startIdx == -1) {
-            return defaultValue != null ? defaultValue : "";
-        }
-        startIdx += searchKey.length();
-        
-        // Skip whitespace
-        while (startIdx < json.length() && Character.isWhitespace(json.charAt(startIdx))) {
-            startIdx++;
-        }
-        
-        if (json.charAt(startIdx) == '"') {
-            startIdx++;
-            int endIdx = json.indexOf('"', startIdx);
-            return json.substring(startIdx, endIdx);
-        } else {
-            int endIdx = startIdx;
-            while (endIdx < json.length() && json.charAt(endIdx) != ',' && json.charAt(endIdx) != '}') {
-                endIdx++;
-            }
-            return json.substring(startIdx, endIdx).trim();
+    // Quote formulas per type as {a, b, c} for price = (area * a + c) + y * b, where y is the
+    // age discount (residential), rent income (commercial) or load capacity (industrial).
+    // Rows are linear regression, property features and market analysis, in that order.
+    private static final double[][] RESIDENTIAL_QUOTE = {
+        {100000, -1, 5000000}, {95000, -0.8, 4800000}, {105000, -1.2, 5200000}
+    };
+    private static final double[][] COMMERCIAL_QUOTE = {
+        {150000, 8, 0}, {140000, 7.5, 0}, {160000, 8.5, 0}
+    };
+    private static final double[][] INDUSTRIAL_QUOTE = {
+        {60000, 10000, 0}, {55000, 9500, 0}, {65000, 10500, 0}
+    };
+
+    static double[][] quoteCoefficients(String type) {
+        if ("RESIDENTIAL".equals(type)) {
+            return RESIDENTIAL_QUOTE;
+        } else if ("COMMERCIAL".equals(type)) {
+            return COMMERCIAL_QUOTE;
+        } else if ("INDUSTRIAL".equals(type)) {
+            return INDUSTRIAL_QUOTE;
         }
+        return null;
+    }
+
+    /**
+     * Same arithmetic as ScoringKernel.linear, so bulk what-if runs match single quotes exactly
+     */
+    private static double quote(double area, double y, double[] coefficients) {
+        return ScalarScoringKernel.linear(area, coefficients[0], y, coefficients[1], coefficients[2]);
     }
 }
@@ -0,0 +1,299 @@
+package com.houseprice.dao;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.store.EntityLog;
+import com.houseprice.util.collection.IntObjectMap;
+
+/**
+ * In-process prediction result repository
+ * Results are indexed by id, by (prediction_date, prediction_id) for keyset pages
+ * and by property for per-property history. Callers always get copies. Like the
+ * prediction_results table, update only changes actual price, accuracy and status.
+ */
+public class EmbeddedPredictionResultRepository extends EmbeddedRepository<PredictionResult>
+        implements PredictionResultRepository {
+    // The order of idx_date: prediction_date, then prediction_id
+    private static final Comparator<PredictionResult> DATE_ORDER =
+            Comparator.comparing(PredictionResult::getPredictionDate)
+                    .thenComparingInt(PredictionResult::getPredictionId);
+
+    private final IntObjectMap<PredictionResult> byId = new IntObjectMap<>();
+    private final TreeSet<PredictionResult> byDate = new TreeSet<>(DATE_ORDER);
+    private final IntObjectMap<TreeSet<PredictionResult>> byProperty = new IntObjectMap<>();
+
+    /**
+     * Memory-only repository
+     */
+    public EmbeddedPredictionResultRepository() throws IOException {
+        this(null, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * @param directory where predictions.log and predictions.snapshot live, null to keep everything in memory
+     * @param snapshotEvery number of logged changes after which the log is compacted into a snapshot
+     */
+    public EmbeddedPredictionResultRepository(Path directory, long snapshotEvery, boolean fsync) throws IOException {
+        super(directory, "predictions", new PredictionResultCodec(), snapshotEvery, fsync);
+        recover();
+    }
+
+    @Override
+    public boolean save(PredictionResult result) throws DatabaseException {
+        return saveAll(Collections.singletonList(result)) == 1;
+    }
+
+    /**
+     * Store results with a single log write
+     */
+    @Override
+    public int saveAll(Collection<PredictionResult> results) throws DatabaseException {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            List<PredictionResult> stored = new ArrayList<>(results.size());
+            int id = nextId;
+            for (PredictionResult result : results) {
+                PredictionResult copy = copy(result);
+                copy.setPredictionId(id++);
+                if (copy.getPredictionDate() == null) {
+                    copy.setPredictionDate(LocalDateTime.now());
+                }
+                stored.add(copy);
+            }
+            logPuts(stored);
+            for (PredictionResult copy : stored) {
+                apply(copy);
+            }
+            maybeSnapshot();
+            return stored.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(PredictionResult result) throws DatabaseException {
+        lock.writeLock().lock();
+        try {
+            PredictionResult existing = byId.get(result.getPredictionId());
+            if (existing == null) {
+                return false;
+            }
+            PredictionResult stored = copy(existing);
+            stored.setActualPrice(result.getActualPrice());
+            stored.setAccuracy(result.getAccuracy());
+            stored.setStatus(result.getStatus());
+            logPut(stored);
+            apply(stored);
+            maybeSnapshot();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws DatabaseException {
+        lock.writeLock().lock();
+        try {
+            if (!byId.containsKey(id)) {
+                return false;
+            }
+            logDelete(id);
+            unapply(id);
+            maybeSnapshot();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete every result of a property, the embedded stand-in for ON DELETE CASCADE
+     */
+    public int deleteByPropertyId(int propertyId) throws DatabaseException {
+        lock.writeLock().lock();
+        try {
+            TreeSet<PredictionResult> results = byProperty.get(propertyId);
+            if (results == null) {
+                return 0;
+            }
+            List<PredictionResult> doomed = new ArrayList<>(results);
+            for (PredictionResult result : doomed) {
+                logDelete(result.getPredictionId());
+                unapply(result.getPredictionId());
+            }
+            maybeSnapshot();
+            return doomed.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public PredictionResult findById(int id) {
+        lock.readLock().lock();
+        try {
+            PredictionResult stored = byId.get(id);
+            return stored != null ? copy(stored) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PredictionResult> findAll() {
+        lock.readLock().lock();
+        try {
+            return copies(byDate, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PredictionResult> findByPropertyId(int propertyId) {
+        lock.readLock().lock();
+        try {
+            TreeSet<PredictionResult> results = byProperty.get(propertyId);
+            return results != null ? copies(results, Integer.MAX_VALUE) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<PredictionResult> findPage(LocalDateTime afterDate, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<PredictionResult> rest = byDate;
+            if (afterDate != null) {
+                PredictionResult cursor = new PredictionResult();
+                cursor.setPredictionDate(afterDate);
+                cursor.setPredictionId(afterId);
+                rest = byDate.tailSet(cursor, false);
+            }
+            return Page.of(copies(rest, limit + 1), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<PredictionResult> copies(Collection<PredictionResult> results, int limit) {
+        List<PredictionResult> copies = new ArrayList<>();
+        for (PredictionResult result : results) {
+            if (copies.size() == limit) {
+                break;
+            }
+            copies.add(copy(result));
+        }
+        return copies;
+    }
+
+    @Override
+    protected void apply(PredictionResult result) {
+        int id = result.getPredictionId();
+        unapply(id);
+        byId.put(id, result);
+        byDate.add(result);
+        TreeSet<PredictionResult> forProperty = byProperty.get(result.getPropertyId());
+        if (forProperty == null) {
+            forProperty = new TreeSet<>(DATE_ORDER);
+            byProperty.put(result.getPropertyId(), forProperty);
+        }
+        forProperty.add(result);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    @Override
+    protected PredictionResult unapply(int id) {
+        PredictionResult removed = byId.remove(id);
+        if (removed != null) {
+            byDate.remove(removed);
+            TreeSet<PredictionResult> forProperty = byProperty.get(removed.getPropertyId());
+            if (forProperty != null && forProperty.remove(removed) && forProperty.isEmpty()) {
+                byProperty.remove(removed.getPropertyId());
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    protected List<PredictionResult> all() {
+        return byId.values();
+    }
+
+    static PredictionResult copy(PredictionResult source) {
+        PredictionResult target = new PredictionResult();
+        target.setPredictionId(source.getPredictionId());
+        target.setPropertyId(source.getPropertyId());
+        target.setPredictedPrice(source.getPredictedPrice());
+        target.setActualPrice(source.getActualPrice());
+        target.setAccuracy(source.getAccuracy());
+        target.setAlgorithm(source.getAlgorithm());
+        target.setStatus(source.getStatus());
+        target.setPredictionDate(source.getPredictionDate());
+        return target;
+    }
+
+    /**
+     * Binary row layout: the prediction_results table columns in order
+     */
+    private static final class PredictionResultCodec implements EntityLog.Codec<PredictionResult> {
+        @Override
+        public void write(DataOutput out, PredictionResult result) throws IOException {
+            out.writeInt(result.getPredictionId());
+            out.writeInt(result.getPropertyId());
+            out.writeDouble(result.getPredictedPrice());
+            out.writeDouble(result.getActualPrice());
+            out.writeDouble(result.getAccuracy());
+            writeNullable(out, result.getAlgorithm());
+            writeNullable(out, result.getStatus());
+            LocalDateTime date = result.getPredictionDate();
+            out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(date.getNano());
+        }
+
+        @Override
+        public PredictionResult read(DataInput in) throws IOException {
+            PredictionResult result = new PredictionResult();
+            result.setPredictionId(in.readInt());
+            result.setPropertyId(in.readInt());
+            result.setPredictedPrice(in.readDouble());
+            result.setActualPrice(in.readDouble());
+            result.setAccuracy(in.readDouble());
+            result.setAlgorithm(readNullable(in));
+            result.setStatus(readNullable(in));
+            long seconds = in.readLong();
+            result.setPredictionDate(LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC));
+            return result;
+        }
+    }
+}
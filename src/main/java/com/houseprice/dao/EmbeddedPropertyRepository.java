@@ -0,0 +1,362 @@
+package com.houseprice.dao;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PriceStatistics;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.store.EntityLog;
+import com.houseprice.util.StringDictionary;
+import com.houseprice.util.collection.IntArrayList;
+import com.houseprice.util.collection.IntDoubleMap;
+import com.houseprice.util.collection.IntObjectMap;
+
+/**
+ * In-process property repository
+ * Rows live in a primitive-keyed map with ordered secondary indexes on id, type,
+ * year built and area, so the PropertyDAO queries are answered without a server.
+ * Callers always get copies, changing a returned property does not change the
+ * stored row. Semantics follow the properties table: ids are assigned on save,
+ * update keeps the stored property_type.
+ */
+public class EmbeddedPropertyRepository extends EmbeddedRepository<Property> implements PropertyRepository {
+    private final IntObjectMap<Property> byId = new IntObjectMap<>();
+    // Id lists are kept sorted, see IntArrayList.addSorted
+    private final IntArrayList ids = new IntArrayList();
+    // Indexed by type code
+    private final List<IntArrayList> byType = Arrays.asList(new IntArrayList(), new IntArrayList(), new IntArrayList());
+    private final TreeMap<Integer, IntArrayList> byYearBuilt = new TreeMap<>();
+    private final TreeMap<Double, IntArrayList> byArea = new TreeMap<>();
+    // calculatePrice() of each stored property, so aggregates need no virtual calls
+    private final IntDoubleMap priceById = new IntDoubleMap();
+    // Called with the id of each deleted property, stands in for ON DELETE CASCADE
+    private volatile IntConsumer deleteListener;
+
+    /**
+     * Memory-only repository
+     */
+    public EmbeddedPropertyRepository() throws IOException {
+        this(null, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * @param directory where properties.log and properties.snapshot live, null to keep everything in memory
+     * @param snapshotEvery number of logged changes after which the log is compacted into a snapshot
+     */
+    public EmbeddedPropertyRepository(Path directory, long snapshotEvery, boolean fsync) throws IOException {
+        super(directory, "properties", new PropertyCodec(), snapshotEvery, fsync);
+        recover();
+    }
+
+    void setDeleteListener(IntConsumer deleteListener) {
+        this.deleteListener = deleteListener;
+    }
+
+    @Override
+    public boolean save(Property property) throws DatabaseException {
+        lock.writeLock().lock();
+        try {
+            // Like AUTO_INCREMENT, any id already on the property is ignored
+            int id = nextId;
+            Property stored = Property.copyOf(property);
+            stored.setPropertyId(id);
+            logPut(stored);
+            apply(stored);
+            property.setPropertyId(id);
+            maybeSnapshot();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean update(Property property) throws DatabaseException {
+        lock.writeLock().lock();
+        try {
+            Property existing = byId.get(property.getPropertyId());
+            if (existing == null) {
+                return false;
+            }
+            Property stored = Property.copyOf(property, existing.getTypeCode());
+            logPut(stored);
+            apply(stored);
+            maybeSnapshot();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws DatabaseException {
+        lock.writeLock().lock();
+        try {
+            if (!byId.containsKey(id)) {
+                return false;
+            }
+            logDelete(id);
+            unapply(id);
+            maybeSnapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        IntConsumer listener = deleteListener;
+        if (listener != null) {
+            listener.accept(id);
+        }
+        return true;
+    }
+
+    @Override
+    public Property findById(int id) {
+        lock.readLock().lock();
+        try {
+            Property stored = byId.get(id);
+            return stored != null ? Property.copyOf(stored) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Property> findAll() {
+        lock.readLock().lock();
+        try {
+            return copies(ids, 0, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Property> findByType(String propertyType) {
+        lock.readLock().lock();
+        try {
+            int code = Property.PROPERTY_TYPES.codeOf(propertyType);
+            return code != StringDictionary.NULL
+                    ? copies(byType.get(code), 0, Integer.MAX_VALUE)
+                    : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Property> findByYearBuiltBetween(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            return rangeCopies(byYearBuilt.subMap(fromYear, true, toYear, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Property> findByAreaBetween(double minArea, double maxArea) {
+        if (Double.compare(minArea, maxArea) > 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            return rangeCopies(byArea.subMap(minArea, true, maxArea, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PriceStatistics> aggregatePrices() {
+        lock.readLock().lock();
+        try {
+            List<PriceStatistics> statistics = new ArrayList<>();
+            for (int code = 0; code < byType.size(); code++) {
+                IntArrayList matching = byType.get(code);
+                if (matching.isEmpty()) {
+                    continue;
+                }
+                double sum = 0;
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int i = 0; i < matching.size(); i++) {
+                    double price = priceById.get(matching.get(i), 0);
+                    sum += price;
+                    min = Math.min(min, price);
+                    max = Math.max(max, price);
+                }
+                statistics.add(new PriceStatistics(Property.PROPERTY_TYPES.decode(code), matching.size(),
+                        sum, min, max));
+            }
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Property> findPage(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            return Page.of(copies(ids, ids.indexAfter(afterId), limit + 1), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies of at most limit properties, starting at index from of an id list
+     */
+    private List<Property> copies(IntArrayList matching, int from, int limit) {
+        int end = (int) Math.min(matching.size(), (long) from + limit);
+        List<Property> result = new ArrayList<>(Math.max(end - from, 0));
+        for (int i = from; i < end; i++) {
+            Property stored = byId.get(matching.get(i));
+            result.add(Property.copyOf(stored));
+        }
+        return result;
+    }
+
+    private <K> List<Property> rangeCopies(NavigableMap<K, IntArrayList> range) {
+        List<Property> result = new ArrayList<>();
+        for (IntArrayList matching : range.values()) {
+            result.addAll(copies(matching, 0, Integer.MAX_VALUE));
+        }
+        return result;
+    }
+
+    @Override
+    protected void apply(Property property) {
+        int id = property.getPropertyId();
+        unapply(id);
+        byId.put(id, property);
+        ids.addSorted(id);
+        byType.get(property.getTypeCode()).addSorted(id);
+        byYearBuilt.computeIfAbsent(property.getYearBuilt(), y -> new IntArrayList(4)).addSorted(id);
+        byArea.computeIfAbsent(property.getArea(), a -> new IntArrayList(2)).addSorted(id);
+        priceById.put(id, property.calculatePrice());
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    @Override
+    protected Property unapply(int id) {
+        Property removed = byId.remove(id);
+        if (removed != null) {
+            ids.removeSorted(id);
+            byType.get(removed.getTypeCode()).removeSorted(id);
+            removeIndexed(byYearBuilt, removed.getYearBuilt(), id);
+            removeIndexed(byArea, removed.getArea(), id);
+            priceById.remove(id);
+        }
+        return removed;
+    }
+
+    private static <K> void removeIndexed(Map<K, IntArrayList> index, K key, int id) {
+        IntArrayList matching = index.get(key);
+        if (matching != null && matching.removeSorted(id) && matching.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    @Override
+    protected List<Property> all() {
+        return byId.values();
+    }
+
+    /**
+     * Binary row layout: the properties table columns in order
+     */
+    private static final class PropertyCodec implements EntityLog.Codec<Property> {
+        @Override
+        public void write(DataOutput out, Property property) throws IOException {
+            out.writeUTF(property.getPropertyType());
+            out.writeInt(property.getPropertyId());
+            writeNullable(out, property.getAddress());
+            out.writeDouble(property.getArea());
+            out.writeInt(property.getBedrooms());
+            out.writeInt(property.getBathrooms());
+            out.writeInt(property.getYearBuilt());
+            writeNullable(out, property.getStatus());
+            if (property instanceof ResidentialProperty) {
+                ResidentialProperty residential = (ResidentialProperty) property;
+                out.writeInt(residential.getFloors());
+                out.writeBoolean(residential.isHasGarage());
+                out.writeBoolean(residential.isHasGarden());
+            } else if (property instanceof CommercialProperty) {
+                CommercialProperty commercial = (CommercialProperty) property;
+                out.writeDouble(commercial.getRentIncome());
+                out.writeBoolean(commercial.isHasParking());
+                out.writeInt(commercial.getMaxFloors());
+            } else if (property instanceof IndustrialProperty) {
+                IndustrialProperty industrial = (IndustrialProperty) property;
+                out.writeDouble(industrial.getLoadCapacity());
+                out.writeBoolean(industrial.isHasLoding());
+                writeNullable(out, industrial.getZoneType());
+            }
+        }
+
+        @Override
+        public Property read(DataInput in) throws IOException {
+            Property property;
+            switch (Property.typeCodeOf(in.readUTF())) {
+                case Property.TYPE_COMMERCIAL:
+                    property = new CommercialProperty();
+                    break;
+                case Property.TYPE_INDUSTRIAL:
+                    property = new IndustrialProperty();
+                    break;
+                default:
+                    property = new ResidentialProperty();
+            }
+            property.setPropertyId(in.readInt());
+            property.setAddress(readNullable(in));
+            property.setArea(in.readDouble());
+            property.setBedrooms(in.readInt());
+            property.setBathrooms(in.readInt());
+            property.setYearBuilt(in.readInt());
+            property.setStatus(readNullable(in));
+            if (property instanceof ResidentialProperty) {
+                ResidentialProperty residential = (ResidentialProperty) property;
+                residential.setFloors(in.readInt());
+                residential.setHasGarage(in.readBoolean());
+                residential.setHasGarden(in.readBoolean());
+            } else if (property instanceof CommercialProperty) {
+                CommercialProperty commercial = (CommercialProperty) property;
+                commercial.setRentIncome(in.readDouble());
+                commercial.setHasParking(in.readBoolean());
+                commercial.setMaxFloors(in.readInt());
+            } else {
+                IndustrialProperty industrial = (IndustrialProperty) property;
+                industrial.setLoadCapacity(in.readDouble());
+                industrial.setHasLoding(in.readBoolean());
+                industrial.setZoneType(readNullable(in));
+            }
+            return property;
+        }
+    }
+}
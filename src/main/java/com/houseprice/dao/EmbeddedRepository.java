@@ -0,0 +1,146 @@
+package com.houseprice.dao;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.store.EntityLog;
+import com.houseprice.util.Logger;
+
+/**
+ * Shared plumbing of the in-process repositories
+ * Subclasses keep their rows and indexes in memory behind a read-write lock.
+ * With a directory every change is written to an EntityLog before it is applied,
+ * and a snapshot is taken every snapshotEvery changes; without one the data lives
+ * only as long as the process.
+ */
+abstract class EmbeddedRepository<T> implements AutoCloseable {
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final EntityLog<T> log;
+    private final long snapshotEvery;
+    protected int nextId = 1;
+
+    /**
+     * @param directory where the log and snapshot live, null to keep everything in memory
+     */
+    EmbeddedRepository(Path directory, String name, EntityLog.Codec<T> codec, long snapshotEvery, boolean fsync)
+            throws IOException {
+        this.log = directory != null ? new EntityLog<>(directory, name, codec, fsync) : null;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    /**
+     * Rebuild the in-memory state from disk, subclasses call this last in their constructor
+     */
+    protected final void recover() throws IOException {
+        if (log == null) {
+            return;
+        }
+        log.replay(new EntityLog.Replay<T>() {
+            @Override
+            public void put(T entity) {
+                apply(entity);
+            }
+
+            @Override
+            public void delete(int id) {
+                unapply(id);
+            }
+        });
+    }
+
+    /**
+     * Store or replace an entity and its index entries, caller holds the write lock
+     */
+    protected abstract void apply(T entity);
+
+    /**
+     * Remove an entity and its index entries, returns it or null; caller holds the write lock
+     */
+    protected abstract T unapply(int id);
+
+    /**
+     * Every stored entity, caller holds the write lock
+     */
+    protected abstract List<T> all();
+
+    protected void logPut(T entity) throws DatabaseException {
+        logPuts(Collections.singletonList(entity));
+    }
+
+    /**
+     * Write ahead the new state of entities, caller holds the write lock
+     */
+    protected void logPuts(Collection<T> entities) throws DatabaseException {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.appendPuts(entities);
+        } catch (IOException e) {
+            throw new DatabaseException("Error writing embedded log: " + e.getMessage(), e);
+        }
+    }
+
+    protected void logDelete(int id) throws DatabaseException {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.appendDelete(id);
+        } catch (IOException e) {
+            throw new DatabaseException("Error writing embedded log: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compact the log into a snapshot once enough changes piled up, caller holds the write lock
+     */
+    protected void maybeSnapshot() {
+        if (log == null || log.getRecordsSinceSnapshot() < snapshotEvery) {
+            return;
+        }
+        try {
+            log.snapshot(all());
+        } catch (IOException e) {
+            // The log still holds every change, the next write tries again
+            Logger.warn("Embedded snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Snapshot pending changes and close the log
+     */
+    @Override
+    public void close() throws IOException {
+        if (log == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (log.getRecordsSinceSnapshot() > 0) {
+                log.snapshot(all());
+            }
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    protected static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -1,6 +1,9 @@
 package com.houseprice.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Generic Repository Interface (Generics)
@@ -12,6 +15,20 @@ public interface IRepository<T> {
      */
     boolean save(T entity) throws Exception;
 
+    /**
+     * Save several entities, returns the number saved
+     * Implementations may override this with a batched write
+     */
+    default int saveAll(Collection<T> entities) throws Exception {
+        int saved = 0;
+        for (T entity : entities) {
+            if (save(entity)) {
+                saved++;
+            }
+        }
+        return saved;
+    }
+
     /**
      * Update an entity
      */
@@ -27,6 +44,23 @@ public interface IRepository<T> {
      */
     List<T> findAll() throws Exception;
 
+    /**
+     * Visit every entity without materializing the whole table
+     * Implementations backed by a database should walk a cursor
+     */
+    default void forEach(Consumer<? super T> visitor) throws Exception {
+        for (T entity : findAll()) {
+            visitor.accept(entity);
+        }
+    }
+
+    /**
+     * Lazily stream every entity, close the stream to release its resources
+     */
+    default Stream<T> stream() throws Exception {
+        return findAll().stream();
+    }
+
     /**
      * Delete entity by ID
      */
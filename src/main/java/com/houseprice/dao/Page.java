@@ -0,0 +1,50 @@
+package com.houseprice.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query
+ * The next page is requested with the sort key of the last item, so every page
+ * costs the same regardless of how deep into the table it is
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final boolean hasMore;
+
+    public Page(List<T> items, boolean hasMore) {
+        this.items = Collections.unmodifiableList(items);
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Build a page from a query that fetched up to limit + 1 rows, the extra row only signals a next page
+     */
+    static <T> Page<T> of(List<T> rows, int limit) {
+        boolean hasMore = rows.size() > limit;
+        return new Page<>(hasMore ? rows.subList(0, limit) : rows, hasMore);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Get the last item, whose key is the cursor for the next page, or null for an empty page
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
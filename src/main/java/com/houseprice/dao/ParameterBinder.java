@@ -0,0 +1,14 @@
+package com.houseprice.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Sets the parameters of a prepared query
+ */
+@FunctionalInterface
+interface ParameterBinder {
+    ParameterBinder NONE = pstmt -> { };
+
+    void bind(PreparedStatement pstmt) throws SQLException;
+}
@@ -4,41 +4,65 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.houseprice.exception.DatabaseException;
 import com.houseprice.model.PredictionResult;
+import com.houseprice.util.AppConfig;
 import com.houseprice.util.DatabaseConnection;
 
 /**
  * Prediction Result Data Access Object
  * Implements IRepository interface for PredictionResult entities
  */
-public class PredictionResultDAO implements IRepository<PredictionResult> {
+public class PredictionResultDAO implements PredictionResultRepository {
+    // Explicit column list, mapped by PredictionResultRowMapper
+    private static final String COLUMNS = "prediction_id, property_id, predicted_price, actual_price, accuracy, " +
+                                          "algorithm, status, prediction_date";
+    private static final String INSERT_SQL = "INSERT INTO prediction_results (property_id, predicted_price, actual_price, accuracy, algorithm, status, prediction_date) " +
+                                             "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE prediction_results SET actual_price=?, accuracy=?, status=? WHERE prediction_id=?";
+    private static final String FIND_BY_ID_SQL = "SELECT " + COLUMNS + " FROM prediction_results WHERE prediction_id = ?";
+    private static final String FIND_ALL_SQL = "SELECT " + COLUMNS + " FROM prediction_results";
+    // Served by idx_property_date
+    private static final String FIND_BY_PROPERTY_SQL = "SELECT " + COLUMNS + " FROM prediction_results " +
+                                                       "WHERE property_id = ? ORDER BY prediction_date, prediction_id";
+    // Keyset pagination on (prediction_date, prediction_id), served by idx_date
+    private static final String FIRST_PAGE_SQL = "SELECT " + COLUMNS + " FROM prediction_results " +
+                                                 "ORDER BY prediction_date, prediction_id LIMIT ?";
+    private static final String NEXT_PAGE_SQL = "SELECT " + COLUMNS + " FROM prediction_results " +
+                                                "WHERE prediction_date > ? OR (prediction_date = ? AND prediction_id > ?) " +
+                                                "ORDER BY prediction_date, prediction_id LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM prediction_results WHERE prediction_id = ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM prediction_results";
+
     private DatabaseConnection dbConnection;
+    private final int batchSize;
+    private final int fetchSize;
 
     public PredictionResultDAO() {
-        this.dbConnection = DatabaseConnection.getInstance();
+        this(DatabaseConnection.getInstance());
+    }
+
+    public PredictionResultDAO(DatabaseConnection dbConnection) {
+        this.dbConnection = dbConnection;
+        this.batchSize = Math.max(1, AppConfig.getInt("db.batch.size", 500));
+        this.fetchSize = AppConfig.getInt("db.fetch.size", 1000);
     }
 
     @Override
     public boolean save(PredictionResult result) throws DatabaseException {
-        String query = "INSERT INTO prediction_results (property_id, predicted_price, actual_price, accuracy, algorithm, status, prediction_date) " +
-                       "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            
-            pstmt.setInt(1, result.getPropertyId());
-            pstmt.setDouble(2, result.getPredictedPrice());
-            pstmt.setDouble(3, result.getActualPrice());
-            pstmt.setDouble(4, result.getAccuracy());
-            pstmt.setString(5, result.getAlgorithm());
-            pstmt.setString(6, result.getStatus());
-            pstmt.setTimestamp(7, Timestamp.valueOf(result.getPredictionDate()));
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
             
+            bindInsert(pstmt, result);
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
@@ -46,12 +70,72 @@ public class PredictionResultDAO implements IRepository<PredictionResult> {
         }
     }
 
+    /**
+     * Insert results with JDBC batching in a single transaction
+     * Batches are flushed every db.batch.size rows; with rewriteBatchedStatements
+     * on the JDBC URL the driver sends each batch as one multi-row INSERT
+     */
+    @Override
+    public int saveAll(Collection<PredictionResult> results) throws DatabaseException {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+                int saved = 0;
+                int pending = 0;
+                for (PredictionResult result : results) {
+                    bindInsert(pstmt, result);
+                    pstmt.addBatch();
+                    if (++pending == batchSize) {
+                        saved += countInserted(pstmt.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    saved += countInserted(pstmt.executeBatch());
+                }
+                conn.commit();
+                return saved;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error saving prediction results: " + e.getMessage(), e);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, PredictionResult result) throws SQLException {
+        pstmt.setInt(1, result.getPropertyId());
+        pstmt.setDouble(2, result.getPredictedPrice());
+        pstmt.setDouble(3, result.getActualPrice());
+        pstmt.setDouble(4, result.getAccuracy());
+        pstmt.setString(5, result.getAlgorithm());
+        pstmt.setString(6, result.getStatus());
+        pstmt.setTimestamp(7, Timestamp.valueOf(result.getPredictionDate()));
+    }
+
+    /**
+     * Rewritten batches report SUCCESS_NO_INFO per row instead of an update count
+     */
+    private static int countInserted(int[] updateCounts) {
+        int inserted = 0;
+        for (int count : updateCounts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
     @Override
     public boolean update(PredictionResult result) throws DatabaseException {
-        String query = "UPDATE prediction_results SET actual_price=?, accuracy=?, status=? WHERE prediction_id=?";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
             
             pstmt.setDouble(1, result.getActualPrice());
             pstmt.setDouble(2, result.getAccuracy());
@@ -67,16 +151,14 @@ public class PredictionResultDAO implements IRepository<PredictionResult> {
 
     @Override
     public PredictionResult findById(int id) throws DatabaseException {
-        String query = "SELECT * FROM prediction_results WHERE prediction_id = ?";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
             
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToPredictionResult(rs);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new PredictionResultRowMapper(rs).map(rs);
+                }
             }
         } catch (SQLException e) {
             throw new DatabaseException("Error finding prediction result: " + e.getMessage(), e);
@@ -86,28 +168,91 @@ public class PredictionResultDAO implements IRepository<PredictionResult> {
 
     @Override
     public List<PredictionResult> findAll() throws DatabaseException {
-        List<PredictionResult> results = new ArrayList<>();
-        String query = "SELECT * FROM prediction_results";
-        
+        return query(FIND_ALL_SQL, ParameterBinder.NONE);
+    }
+
+    /**
+     * Find the predictions made for one property, oldest first
+     */
+    @Override
+    public List<PredictionResult> findByPropertyId(int propertyId) throws DatabaseException {
+        return query(FIND_BY_PROPERTY_SQL, pstmt -> pstmt.setInt(1, propertyId));
+    }
+
+    /**
+     * Get up to limit predictions ordered by date then id, starting after the given key
+     * Pass a null afterDate for the first page, otherwise the date and id of the last item
+     */
+    @Override
+    public Page<PredictionResult> findPage(LocalDateTime afterDate, int afterId, int limit) throws DatabaseException {
+        List<PredictionResult> rows;
+        if (afterDate == null) {
+            rows = query(FIRST_PAGE_SQL, pstmt -> pstmt.setInt(1, limit + 1));
+        } else {
+            Timestamp after = Timestamp.valueOf(afterDate);
+            rows = query(NEXT_PAGE_SQL, pstmt -> {
+                pstmt.setTimestamp(1, after);
+                pstmt.setTimestamp(2, after);
+                pstmt.setInt(3, afterId);
+                pstmt.setInt(4, limit + 1);
+            });
+        }
+        return Page.of(rows, limit);
+    }
+
+    /**
+     * Visit every row through a server-side cursor, db.fetch.size rows per round trip
+     */
+    @Override
+    public void forEach(Consumer<? super PredictionResult> visitor) throws DatabaseException {
+        try {
+            ResultSetStreams.forEach(dbConnection, FIND_ALL_SQL, fetchSize, PredictionResultRowMapper::new, visitor);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error streaming prediction results: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream every row through a server-side cursor, the stream holds a connection until closed
+     */
+    @Override
+    public Stream<PredictionResult> stream() throws DatabaseException {
+        try {
+            return ResultSetStreams.stream(dbConnection, FIND_ALL_SQL, fetchSize, PredictionResultRowMapper::new);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error streaming prediction results: " + e.getMessage(), e);
+        }
+    }
+
+    private List<PredictionResult> query(String sql, ParameterBinder binder) throws DatabaseException {
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
-             ResultSet rs = pstmt.executeQuery()) {
-            
-            while (rs.next()) {
-                results.add(mapResultSetToPredictionResult(rs));
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapRows(rs);
             }
         } catch (SQLException e) {
             throw new DatabaseException("Error retrieving prediction results: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Map the remaining rows of a result set that selects the prediction result columns
+     */
+    public static List<PredictionResult> mapRows(ResultSet rs) throws SQLException {
+        List<PredictionResult> results = new ArrayList<>();
+        PredictionResultRowMapper mapper = new PredictionResultRowMapper(rs);
+        while (rs.next()) {
+            results.add(mapper.map(rs));
+        }
         return results;
     }
 
     @Override
     public boolean delete(int id) throws DatabaseException {
-        String query = "DELETE FROM prediction_results WHERE prediction_id = ?";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
             
             pstmt.setInt(1, id);
             int affectedRows = pstmt.executeUpdate();
@@ -119,14 +264,12 @@ public class PredictionResultDAO implements IRepository<PredictionResult> {
 
     @Override
     public int count() throws DatabaseException {
-        String query = "SELECT COUNT(*) as total FROM prediction_results";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_SQL);
              ResultSet rs = pstmt.executeQuery()) {
             
             if (rs.next()) {
-                return rs.getInt("total");
+                return rs.getInt(1);
             }
         } catch (SQLException e) {
             throw new DatabaseException("Error counting prediction results: " + e.getMessage(), e);
@@ -134,16 +277,42 @@ public class PredictionResultDAO implements IRepository<PredictionResult> {
         return 0;
     }
 
-    private PredictionResult mapResultSetToPredictionResult(ResultSet rs) throws SQLException {
-        PredictionResult result = new PredictionResult();
-        result.setPredictionId(rs.getInt("prediction_id"));
-        result.setPropertyId(rs.getInt("property_id"));
-        result.setPredictedPrice(rs.getDouble("predicted_price"));
-        result.setActualPrice(rs.getDouble("actual_price"));
-        result.setAccuracy(rs.getDouble("accuracy"));
-        result.setAlgorithm(rs.getString("algorithm"));
-        result.setStatus(rs.getString("status"));
-        result.setPredictionDate(rs.getTimestamp("prediction_date").toLocalDateTime());
-        return result;
+    /**
+     * Maps prediction rows, column indexes are resolved once per ResultSet
+     */
+    private static final class PredictionResultRowMapper implements RowMapper<PredictionResult> {
+        private final int predictionId;
+        private final int propertyId;
+        private final int predictedPrice;
+        private final int actualPrice;
+        private final int accuracy;
+        private final int algorithm;
+        private final int status;
+        private final int predictionDate;
+
+        PredictionResultRowMapper(ResultSet rs) throws SQLException {
+            this.predictionId = rs.findColumn("prediction_id");
+            this.propertyId = rs.findColumn("property_id");
+            this.predictedPrice = rs.findColumn("predicted_price");
+            this.actualPrice = rs.findColumn("actual_price");
+            this.accuracy = rs.findColumn("accuracy");
+            this.algorithm = rs.findColumn("algorithm");
+            this.status = rs.findColumn("status");
+            this.predictionDate = rs.findColumn("prediction_date");
+        }
+
+        @Override
+        public PredictionResult map(ResultSet rs) throws SQLException {
+            PredictionResult result = new PredictionResult();
+            result.setPredictionId(rs.getInt(predictionId));
+            result.setPropertyId(rs.getInt(propertyId));
+            result.setPredictedPrice(rs.getDouble(predictedPrice));
+            result.setActualPrice(rs.getDouble(actualPrice));
+            result.setAccuracy(rs.getDouble(accuracy));
+            result.setAlgorithm(rs.getString(algorithm));
+            result.setStatus(rs.getString(status));
+            result.setPredictionDate(rs.getTimestamp(predictionDate).toLocalDateTime());
+            return result;
+        }
     }
 }
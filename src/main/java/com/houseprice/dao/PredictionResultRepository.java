@@ -0,0 +1,24 @@
+package com.houseprice.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.model.PredictionResult;
+
+/**
+ * Prediction result queries beyond plain CRUD
+ * Implemented by PredictionResultDAO over MySQL and by EmbeddedPredictionResultRepository in process
+ */
+public interface PredictionResultRepository extends IRepository<PredictionResult> {
+    /**
+     * Find the predictions of one property, oldest first
+     */
+    List<PredictionResult> findByPropertyId(int propertyId) throws DatabaseException;
+
+    /**
+     * Get up to limit results after (afterDate, afterId) in (prediction_date, prediction_id) order
+     * Pass a null afterDate for the first page
+     */
+    Page<PredictionResult> findPage(LocalDateTime afterDate, int afterId, int limit) throws DatabaseException;
+}
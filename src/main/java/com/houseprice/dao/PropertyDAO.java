@@ -4,14 +4,19 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.houseprice.exception.DatabaseException;
 import com.houseprice.model.CommercialProperty;
 import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PriceStatistics;
 import com.houseprice.model.Property;
 import com.houseprice.model.ResidentialProperty;
+import com.houseprice.util.AppConfig;
 import com.houseprice.util.DatabaseConnection;
 
 /**
@@ -19,20 +24,59 @@ import com.houseprice.util.DatabaseConnection;
  * Implements IRepository interface for Property entities
  * Handles all database operations using JDBC
  */
-public class PropertyDAO implements IRepository<Property> {
+public class PropertyDAO implements PropertyRepository {
+    // Subtype attributes live in the same row, bound by bindSubtype() in this order
+    private static final String SUBTYPE_COLUMNS =
+            "floors, has_garage, has_garden, rent_income, has_parking, max_floors, load_capacity, has_loading, zone_type";
+    // Explicit column list, mapped by PropertyRowMapper
+    private static final String COLUMNS =
+            "property_id, address, area, bedrooms, bathrooms, year_built, property_type, status, " + SUBTYPE_COLUMNS;
+    private static final String INSERT_SQL = "INSERT INTO properties (address, area, bedrooms, bathrooms, year_built, property_type, status, " +
+                                             SUBTYPE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE properties SET address=?, area=?, bedrooms=?, bathrooms=?, year_built=?, status=?, " +
+                                             "floors=?, has_garage=?, has_garden=?, rent_income=?, has_parking=?, max_floors=?, " +
+                                             "load_capacity=?, has_loading=?, zone_type=? WHERE property_id=?";
+    private static final String FIND_BY_ID_SQL = "SELECT " + COLUMNS + " FROM properties WHERE property_id = ?";
+    private static final String FIND_ALL_SQL = "SELECT " + COLUMNS + " FROM properties";
+    // Served by idx_type, idx_properties_year_built and idx_properties_area
+    private static final String FIND_BY_TYPE_SQL = "SELECT " + COLUMNS + " FROM properties WHERE property_type = ?";
+    private static final String FIND_BY_YEAR_SQL = "SELECT " + COLUMNS + " FROM properties WHERE year_built BETWEEN ? AND ?";
+    private static final String FIND_BY_AREA_SQL = "SELECT " + COLUMNS + " FROM properties WHERE area BETWEEN ? AND ?";
+    // Keyset pagination on the primary key
+    private static final String FIND_PAGE_SQL = "SELECT " + COLUMNS + " FROM properties " +
+                                                "WHERE property_id > ? ORDER BY property_id LIMIT ?";
+    // calculatePrice() of each subtype as SQL, keep in step with the model classes
+    private static final String PRICE_SQL =
+            "CASE property_type" +
+            " WHEN 'COMMERCIAL' THEN GREATEST(area * 2000 + rent_income * 12 * 8" +
+            " + IF(has_parking, 50000, 0) - (2024 - year_built) * 500, 100000)" +
+            " WHEN 'INDUSTRIAL' THEN GREATEST(area * 800 + load_capacity * 100" +
+            " + IF(has_loading, 75000, 0) - (2024 - year_built) * 800, 50000)" +
+            " ELSE GREATEST(area * 1500 + bedrooms * 50000 + IF(has_garage, 20000, 0)" +
+            " + IF(has_garden, 15000, 0) - (2024 - year_built) * 1000, 50000) END";
+    private static final String AGGREGATE_PRICES_SQL =
+            "SELECT property_type, COUNT(*), SUM(price), MIN(price), MAX(price) " +
+            "FROM (SELECT property_type, " + PRICE_SQL + " AS price FROM properties) priced " +
+            "GROUP BY property_type";
+    private static final String DELETE_SQL = "DELETE FROM properties WHERE property_id = ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM properties";
+
     private DatabaseConnection dbConnection;
+    private final int fetchSize;
 
     public PropertyDAO() {
-        this.dbConnection = DatabaseConnection.getInstance();
+        this(DatabaseConnection.getInstance());
+    }
+
+    public PropertyDAO(DatabaseConnection dbConnection) {
+        this.dbConnection = dbConnection;
+        this.fetchSize = AppConfig.getInt("db.fetch.size", 1000);
     }
 
     @Override
     public boolean save(Property property) throws DatabaseException {
-        String query = "INSERT INTO properties (address, area, bedrooms, bathrooms, year_built, property_type, status) " +
-                       "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setString(1, property.getAddress());
             pstmt.setDouble(2, property.getArea());
@@ -41,8 +85,14 @@ public class PropertyDAO implements IRepository<Property> {
             pstmt.setInt(5, property.getYearBuilt());
             pstmt.setString(6, property.getPropertyType());
             pstmt.setString(7, property.getStatus());
+            bindSubtype(pstmt, 8, property);
             
             int affectedRows = pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    property.setPropertyId(keys.getInt(1));
+                }
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             throw new DatabaseException("Error saving property: " + e.getMessage(), e);
@@ -51,10 +101,8 @@ public class PropertyDAO implements IRepository<Property> {
 
     @Override
     public boolean update(Property property) throws DatabaseException {
-        String query = "UPDATE properties SET address=?, area=?, bedrooms=?, bathrooms=?, year_built=?, status=? WHERE property_id=?";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
             
             pstmt.setString(1, property.getAddress());
             pstmt.setDouble(2, property.getArea());
@@ -62,7 +110,8 @@ public class PropertyDAO implements IRepository<Property> {
             pstmt.setInt(4, property.getBathrooms());
             pstmt.setInt(5, property.getYearBuilt());
             pstmt.setString(6, property.getStatus());
-            pstmt.setInt(7, property.getPropertyId());
+            bindSubtype(pstmt, 7, property);
+            pstmt.setInt(16, property.getPropertyId());
             
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
@@ -71,18 +120,56 @@ public class PropertyDAO implements IRepository<Property> {
         }
     }
 
+    /**
+     * Bind the SUBTYPE_COLUMNS starting at index, columns of other subtypes get their defaults
+     */
+    private static void bindSubtype(PreparedStatement pstmt, int index, Property property) throws SQLException {
+        int floors = 0;
+        boolean hasGarage = false;
+        boolean hasGarden = false;
+        double rentIncome = 0;
+        boolean hasParking = false;
+        int maxFloors = 0;
+        double loadCapacity = 0;
+        boolean hasLoading = false;
+        String zoneType = null;
+        if (property instanceof ResidentialProperty) {
+            ResidentialProperty residential = (ResidentialProperty) property;
+            floors = residential.getFloors();
+            hasGarage = residential.isHasGarage();
+            hasGarden = residential.isHasGarden();
+        } else if (property instanceof CommercialProperty) {
+            CommercialProperty commercial = (CommercialProperty) property;
+            rentIncome = commercial.getRentIncome();
+            hasParking = commercial.isHasParking();
+            maxFloors = commercial.getMaxFloors();
+        } else if (property instanceof IndustrialProperty) {
+            IndustrialProperty industrial = (IndustrialProperty) property;
+            loadCapacity = industrial.getLoadCapacity();
+            hasLoading = industrial.isHasLoding();
+            zoneType = industrial.getZoneType();
+        }
+        pstmt.setInt(index, floors);
+        pstmt.setBoolean(index + 1, hasGarage);
+        pstmt.setBoolean(index + 2, hasGarden);
+        pstmt.setDouble(index + 3, rentIncome);
+        pstmt.setBoolean(index + 4, hasParking);
+        pstmt.setInt(index + 5, maxFloors);
+        pstmt.setDouble(index + 6, loadCapacity);
+        pstmt.setBoolean(index + 7, hasLoading);
+        pstmt.setString(index + 8, zoneType);
+    }
+
     @Override
     public Property findById(int id) throws DatabaseException {
-        String query = "SELECT * FROM properties WHERE property_id = ?";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
             
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return mapResultSetToProperty(rs);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new PropertyRowMapper(rs).map(rs);
+                }
             }
         } catch (SQLException e) {
             throw new DatabaseException("Error finding property: " + e.getMessage(), e);
@@ -92,28 +179,125 @@ public class PropertyDAO implements IRepository<Property> {
 
     @Override
     public List<Property> findAll() throws DatabaseException {
-        List<Property> properties = new ArrayList<>();
-        String query = "SELECT * FROM properties";
-        
+        return query(FIND_ALL_SQL, ParameterBinder.NONE);
+    }
+
+    /**
+     * Find properties of one type, e.g. RESIDENTIAL
+     */
+    @Override
+    public List<Property> findByType(String propertyType) throws DatabaseException {
+        return query(FIND_BY_TYPE_SQL, pstmt -> pstmt.setString(1, propertyType));
+    }
+
+    /**
+     * Find properties built between two years, inclusive
+     */
+    @Override
+    public List<Property> findByYearBuiltBetween(int fromYear, int toYear) throws DatabaseException {
+        return query(FIND_BY_YEAR_SQL, pstmt -> {
+            pstmt.setInt(1, fromYear);
+            pstmt.setInt(2, toYear);
+        });
+    }
+
+    /**
+     * Find properties with an area between two bounds, inclusive
+     */
+    @Override
+    public List<Property> findByAreaBetween(double minArea, double maxArea) throws DatabaseException {
+        return query(FIND_BY_AREA_SQL, pstmt -> {
+            pstmt.setDouble(1, minArea);
+            pstmt.setDouble(2, maxArea);
+        });
+    }
+
+    /**
+     * Price count, sum, min and max per property_type, computed by the database in one grouped query
+     */
+    @Override
+    public List<PriceStatistics> aggregatePrices() throws DatabaseException {
+        List<PriceStatistics> statistics = new ArrayList<>();
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
+             PreparedStatement pstmt = conn.prepareStatement(AGGREGATE_PRICES_SQL);
              ResultSet rs = pstmt.executeQuery()) {
-            
+
             while (rs.next()) {
-                properties.add(mapResultSetToProperty(rs));
+                statistics.add(new PriceStatistics(rs.getString(1), rs.getLong(2), rs.getDouble(3),
+                        rs.getDouble(4), rs.getDouble(5)));
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error aggregating property prices: " + e.getMessage(), e);
+        }
+        return statistics;
+    }
+
+    /**
+     * Get up to limit properties with an id greater than afterId, in id order
+     * Pass 0 for the first page and the id of the last item for the next one
+     */
+    @Override
+    public Page<Property> findPage(int afterId, int limit) throws DatabaseException {
+        List<Property> rows = query(FIND_PAGE_SQL, pstmt -> {
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit + 1);
+        });
+        return Page.of(rows, limit);
+    }
+
+    /**
+     * Visit every row through a server-side cursor, db.fetch.size rows per round trip
+     */
+    @Override
+    public void forEach(Consumer<? super Property> visitor) throws DatabaseException {
+        try {
+            ResultSetStreams.forEach(dbConnection, FIND_ALL_SQL, fetchSize, PropertyRowMapper::new, visitor);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error streaming properties: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream every row through a server-side cursor, the stream holds a connection until closed
+     */
+    @Override
+    public Stream<Property> stream() throws DatabaseException {
+        try {
+            return ResultSetStreams.stream(dbConnection, FIND_ALL_SQL, fetchSize, PropertyRowMapper::new);
+        } catch (SQLException e) {
+            throw new DatabaseException("Error streaming properties: " + e.getMessage(), e);
+        }
+    }
+
+    private List<Property> query(String sql, ParameterBinder binder) throws DatabaseException {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapRows(rs);
             }
         } catch (SQLException e) {
             throw new DatabaseException("Error retrieving properties: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Map the remaining rows of a result set that selects the property columns
+     */
+    public static List<Property> mapRows(ResultSet rs) throws SQLException {
+        List<Property> properties = new ArrayList<>();
+        PropertyRowMapper mapper = new PropertyRowMapper(rs);
+        while (rs.next()) {
+            properties.add(mapper.map(rs));
+        }
         return properties;
     }
 
     @Override
     public boolean delete(int id) throws DatabaseException {
-        String query = "DELETE FROM properties WHERE property_id = ?";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
             
             pstmt.setInt(1, id);
             int affectedRows = pstmt.executeUpdate();
@@ -125,14 +309,12 @@ public class PropertyDAO implements IRepository<Property> {
 
     @Override
     public int count() throws DatabaseException {
-        String query = "SELECT COUNT(*) as total FROM properties";
-        
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(query);
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_SQL);
              ResultSet rs = pstmt.executeQuery()) {
             
             if (rs.next()) {
-                return rs.getInt("total");
+                return rs.getInt(1);
             }
         } catch (SQLException e) {
             throw new DatabaseException("Error counting properties: " + e.getMessage(), e);
@@ -140,32 +322,84 @@ public class PropertyDAO implements IRepository<Property> {
         return 0;
     }
 
-    private Property mapResultSetToProperty(ResultSet rs) throws SQLException {
-        String propertyType = rs.getString("property_type");
-        Property property;
-
-        switch (propertyType) {
-            case "RESIDENTIAL":
-                property = new ResidentialProperty();
-                break;
-            case "COMMERCIAL":
-                property = new CommercialProperty();
-                break;
-            case "INDUSTRIAL":
-                property = new IndustrialProperty();
-                break;
-            default:
-                property = new ResidentialProperty();
+    /**
+     * Maps property rows including subtype attributes, column indexes are resolved once per ResultSet
+     */
+    private static final class PropertyRowMapper implements RowMapper<Property> {
+        private final int propertyId;
+        private final int address;
+        private final int area;
+        private final int bedrooms;
+        private final int bathrooms;
+        private final int yearBuilt;
+        private final int propertyType;
+        private final int status;
+        private final int floors;
+        private final int hasGarage;
+        private final int hasGarden;
+        private final int rentIncome;
+        private final int hasParking;
+        private final int maxFloors;
+        private final int loadCapacity;
+        private final int hasLoading;
+        private final int zoneType;
+
+        PropertyRowMapper(ResultSet rs) throws SQLException {
+            this.propertyId = rs.findColumn("property_id");
+            this.address = rs.findColumn("address");
+            this.area = rs.findColumn("area");
+            this.bedrooms = rs.findColumn("bedrooms");
+            this.bathrooms = rs.findColumn("bathrooms");
+            this.yearBuilt = rs.findColumn("year_built");
+            this.propertyType = rs.findColumn("property_type");
+            this.status = rs.findColumn("status");
+            this.floors = rs.findColumn("floors");
+            this.hasGarage = rs.findColumn("has_garage");
+            this.hasGarden = rs.findColumn("has_garden");
+            this.rentIncome = rs.findColumn("rent_income");
+            this.hasParking = rs.findColumn("has_parking");
+            this.maxFloors = rs.findColumn("max_floors");
+            this.loadCapacity = rs.findColumn("load_capacity");
+            this.hasLoading = rs.findColumn("has_loading");
+            this.zoneType = rs.findColumn("zone_type");
         }
 
-        property.setPropertyId(rs.getInt("property_id"));
-        property.setAddress(rs.getString("address"));
-        property.setArea(rs.getDouble("area"));
-        property.setBedrooms(rs.getInt("bedrooms"));
-        property.setBathrooms(rs.getInt("bathrooms"));
-        property.setYearBuilt(rs.getInt("year_built"));
-        property.setStatus(rs.getString("status"));
+        @Override
+        public Property map(ResultSet rs) throws SQLException {
+            Property property;
+            // Dictionary lookup then an int switch, instead of a String switch per row
+            switch (Property.typeCodeOf(rs.getString(propertyType))) {
+                case Property.TYPE_COMMERCIAL:
+                    CommercialProperty commercial = new CommercialProperty();
+                    commercial.setRentIncome(rs.getDouble(rentIncome));
+                    commercial.setHasParking(rs.getBoolean(hasParking));
+                    commercial.setMaxFloors(rs.getInt(maxFloors));
+                    property = commercial;
+                    break;
+                case Property.TYPE_INDUSTRIAL:
+                    IndustrialProperty industrial = new IndustrialProperty();
+                    industrial.setLoadCapacity(rs.getDouble(loadCapacity));
+                    industrial.setHasLoding(rs.getBoolean(hasLoading));
+                    industrial.setZoneType(rs.getString(zoneType));
+                    property = industrial;
+                    break;
+                default:
+                    ResidentialProperty residential = new ResidentialProperty();
+                    residential.setFloors(rs.getInt(floors));
+                    residential.setHasGarage(rs.getBoolean(hasGarage));
+                    residential.setHasGarden(rs.getBoolean(hasGarden));
+                    property = residential;
+            }
+
+            property.setPropertyId(rs.getInt(propertyId));
+            property.setAddress(rs.getString(address));
+            property.setArea(rs.getDouble(area));
+            property.setBedrooms(rs.getInt(bedrooms));
+            property.setBathrooms(rs.getInt(bathrooms));
+            property.setYearBuilt(rs.getInt(yearBuilt));
+            property.setStatus(rs.getString(status));
 
-        return property;
+            return property;
+        }
     }
 }
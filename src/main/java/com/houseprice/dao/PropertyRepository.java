@@ -0,0 +1,38 @@
+package com.houseprice.dao;
+
+import java.util.List;
+
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.model.PriceStatistics;
+import com.houseprice.model.Property;
+
+/**
+ * Property queries beyond plain CRUD
+ * Implemented by PropertyDAO over MySQL and by EmbeddedPropertyRepository in process
+ */
+public interface PropertyRepository extends IRepository<Property> {
+    /**
+     * Find properties of one type, e.g. RESIDENTIAL
+     */
+    List<Property> findByType(String propertyType) throws DatabaseException;
+
+    /**
+     * Find properties built between two years, inclusive
+     */
+    List<Property> findByYearBuiltBetween(int fromYear, int toYear) throws DatabaseException;
+
+    /**
+     * Find properties with an area between two bounds, inclusive
+     */
+    List<Property> findByAreaBetween(double minArea, double maxArea) throws DatabaseException;
+
+    /**
+     * Price count, sum, min and max per property type
+     */
+    List<PriceStatistics> aggregatePrices() throws DatabaseException;
+
+    /**
+     * Get up to limit properties with an id greater than afterId, in id order
+     */
+    Page<Property> findPage(int afterId, int limit) throws DatabaseException;
+}
@@ -0,0 +1,88 @@
+package com.houseprice.dao;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.houseprice.util.AppConfig;
+import com.houseprice.util.Logger;
+
+/**
+ * Chooses the repository backend from repository.backend
+ * mysql (the default) gives the JDBC DAOs; embedded gives in-process repositories
+ * shared by every caller, persisted under repository.embedded.dir or kept in
+ * memory when that is empty.
+ */
+public final class RepositoryFactory {
+    private static EmbeddedPropertyRepository embeddedProperties;
+    private static EmbeddedPredictionResultRepository embeddedPredictions;
+
+    private RepositoryFactory() {
+    }
+
+    public static boolean isEmbedded() {
+        return "embedded".equalsIgnoreCase(AppConfig.get("repository.backend", "mysql").trim());
+    }
+
+    public static synchronized PropertyRepository propertyRepository() {
+        if (!isEmbedded()) {
+            return new PropertyDAO();
+        }
+        openEmbedded();
+        return embeddedProperties;
+    }
+
+    public static synchronized PredictionResultRepository predictionResultRepository() {
+        if (!isEmbedded()) {
+            return new PredictionResultDAO();
+        }
+        openEmbedded();
+        return embeddedPredictions;
+    }
+
+    private static void openEmbedded() {
+        if (embeddedProperties != null) {
+            return;
+        }
+        String dir = AppConfig.get("repository.embedded.dir", "").trim();
+        Path directory = dir.isEmpty() ? null : Paths.get(dir);
+        long snapshotEvery = AppConfig.getLong("repository.embedded.snapshot.every", 10000);
+        boolean fsync = AppConfig.getBoolean("repository.embedded.fsync", false);
+        try {
+            EmbeddedPredictionResultRepository predictions =
+                    new EmbeddedPredictionResultRepository(directory, snapshotEvery, fsync);
+            EmbeddedPropertyRepository properties = new EmbeddedPropertyRepository(directory, snapshotEvery, fsync);
+            properties.setDeleteListener(propertyId -> {
+                try {
+                    predictions.deleteByPropertyId(propertyId);
+                } catch (Exception e) {
+                    Logger.error("Error deleting predictions of property " + propertyId, e);
+                }
+            });
+            embeddedPredictions = predictions;
+            embeddedProperties = properties;
+            Logger.info("Using embedded repositories" + (directory != null ? " in " + directory : " in memory"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open embedded repositories: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Snapshot and close the embedded repositories, call once when the application stops
+     */
+    public static synchronized void close() {
+        try {
+            if (embeddedProperties != null) {
+                embeddedProperties.close();
+            }
+            if (embeddedPredictions != null) {
+                embeddedPredictions.close();
+            }
+        } catch (IOException e) {
+            Logger.error("Error closing embedded repositories", e);
+        } finally {
+            embeddedProperties = null;
+            embeddedPredictions = null;
+        }
+    }
+}
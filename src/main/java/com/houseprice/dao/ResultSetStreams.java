@@ -0,0 +1,100 @@
+package com.houseprice.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.houseprice.util.DatabaseConnection;
+import com.houseprice.util.Logger;
+
+/**
+ * Lazily mapped query results backed by a server-side cursor
+ * The connection stays borrowed until the stream is closed, so callers must
+ * use try-with-resources. Rows are fetched fetchSize at a time only when
+ * db.cursor.fetch adds useCursorFetch to the MySQL URL, otherwise the driver
+ * buffers the whole result before the first row is mapped.
+ */
+final class ResultSetStreams {
+
+    /**
+     * Creates the row mapper once the ResultSet columns are known
+     */
+    @FunctionalInterface
+    interface MapperFactory<T> {
+        RowMapper<T> create(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStreams() {
+    }
+
+    static <T> Stream<T> stream(DatabaseConnection dbConnection, String sql, int fetchSize,
+                                MapperFactory<T> mapperFactory) throws SQLException {
+        Connection conn = dbConnection.getConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+            RowMapper<T> mapper = mapperFactory.create(rs);
+            ResultSet rows = rs;
+            Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!rows.next()) {
+                            return false;
+                        }
+                        action.accept(mapper.map(rows));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Error reading row: " + e.getMessage(), e);
+                    }
+                }
+            };
+            PreparedStatement statement = pstmt;
+            return StreamSupport.stream(spliterator, false).onClose(() -> closeAll(rows, statement, conn));
+        } catch (SQLException | RuntimeException e) {
+            closeAll(rs, pstmt, conn);
+            throw e;
+        }
+    }
+
+    /**
+     * Visit every row with a cursor, holding one mapped row at a time
+     */
+    static <T> void forEach(DatabaseConnection dbConnection, String sql, int fetchSize,
+                            MapperFactory<T> mapperFactory, Consumer<? super T> visitor) throws SQLException {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<T> mapper = mapperFactory.create(rs);
+                while (rs.next()) {
+                    visitor.accept(mapper.map(rs));
+                }
+            }
+        }
+    }
+
+    private static void closeAll(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                Logger.debug("Error closing cursor resource: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -8,6 +8,10 @@ public class ValidationException extends HousePriceException {
         super(message, "VALIDATION_ERROR");
     }
 
+    public ValidationException(String message, String errorCode) {
+        super(message, errorCode);
+    }
+
     public ValidationException(String message, Throwable cause) {
         super(message, "VALIDATION_ERROR", cause);
     }
@@ -4,7 +4,6 @@ package com.houseprice.model;
  * Commercial Property implementation (Polymorphism)
  */
 public class CommercialProperty extends Property {
-    private String propertyType = "COMMERCIAL";
     private double rentIncome;
     private boolean hasParking;
     private int maxFloors;
@@ -23,6 +22,13 @@ public class CommercialProperty extends Property {
 
     @Override
     public double calculatePrice() {
+        return calculatePrice(getArea(), getYearBuilt(), getRentIncome(), isHasParking());
+    }
+
+    /**
+     * Commercial price formula, shared with bulk scoring over primitive columns
+     */
+    public static double calculatePrice(double area, int yearBuilt, double rentIncome, boolean hasParking) {
         // Price calculation for commercial properties based on rental income
         double pricePerSqFt = 2000; // $2000 per sq ft for commercial
         double basePrice = area * pricePerSqFt;
@@ -36,7 +42,18 @@ public class CommercialProperty extends Property {
 
     @Override
     public String getPropertyType() {
-        return propertyType;
+        return "COMMERCIAL";
+    }
+
+    @Override
+    public byte getTypeCode() {
+        return TYPE_COMMERCIAL;
+    }
+
+    @Override
+    public double[] getPricingFeatures() {
+        return new double[] { getArea(), getBedrooms(), getBathrooms(), getYearBuilt(),
+                getRentIncome(), isHasParking() ? 1 : 0 };
     }
 
     public double getRentIncome() {
@@ -1,13 +1,23 @@
 package com.houseprice.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.houseprice.util.StringDictionary;
+
 /**
  * Industrial Property implementation (Polymorphism)
  */
 public class IndustrialProperty extends Property {
-    private String propertyType = "INDUSTRIAL";
+    public static final StringDictionary ZONE_TYPES = new StringDictionary("zone type", 1024);
+
     private double loadCapacity;
     private boolean hasLoding;
-    private String zoneType;
+    // Code in ZONE_TYPES, written out as its string when serialized
+    private transient int zoneTypeCode = StringDictionary.NULL;
+    // The zone type itself when zoneTypeCode is UNENCODED
+    private transient String rawZoneType;
 
     public IndustrialProperty() {
         super();
@@ -18,11 +28,18 @@ public class IndustrialProperty extends Property {
         super(address, area, bedrooms, bathrooms, yearBuilt);
         this.loadCapacity = loadCapacity;
         this.hasLoding = hasLoding;
-        this.zoneType = zoneType;
+        encodeZoneType(zoneType);
     }
 
     @Override
     public double calculatePrice() {
+        return calculatePrice(getArea(), getYearBuilt(), getLoadCapacity(), isHasLoding());
+    }
+
+    /**
+     * Industrial price formula, shared with bulk scoring over primitive columns
+     */
+    public static double calculatePrice(double area, int yearBuilt, double loadCapacity, boolean hasLoding) {
         // Price calculation for industrial properties
         double basePrice = area * 800; // $800 per sq ft
         double loadBonus = loadCapacity * 100;
@@ -35,7 +52,18 @@ public class IndustrialProperty extends Property {
 
     @Override
     public String getPropertyType() {
-        return propertyType;
+        return "INDUSTRIAL";
+    }
+
+    @Override
+    public byte getTypeCode() {
+        return TYPE_INDUSTRIAL;
+    }
+
+    @Override
+    public double[] getPricingFeatures() {
+        return new double[] { getArea(), getBedrooms(), getBathrooms(), getYearBuilt(),
+                getLoadCapacity(), isHasLoding() ? 1 : 0 };
     }
 
     public double getLoadCapacity() {
@@ -55,10 +83,25 @@ public class IndustrialProperty extends Property {
     }
 
     public String getZoneType() {
-        return zoneType;
+        return zoneTypeCode == StringDictionary.UNENCODED ? rawZoneType : ZONE_TYPES.decode(zoneTypeCode);
     }
 
     public void setZoneType(String zoneType) {
-        this.zoneType = zoneType;
+        encodeZoneType(zoneType);
+    }
+
+    private void encodeZoneType(String zoneType) {
+        zoneTypeCode = ZONE_TYPES.tryEncode(zoneType);
+        rawZoneType = zoneTypeCode == StringDictionary.UNENCODED ? zoneType : null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(getZoneType());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        encodeZoneType((String) in.readObject());
     }
 }
@@ -2,19 +2,30 @@ package com.houseprice.model;
 
 import java.time.LocalDateTime;
 
+import com.houseprice.util.StringDictionary;
+
 /**
  * Prediction Result model for storing price predictions
  * Demonstrates use of Collections and Generics
  */
 public class PredictionResult {
+    // Seeded with the built-in algorithms so their results stay encoded even if the table holds many others
+    public static final StringDictionary ALGORITHMS = new StringDictionary("algorithm", 1024,
+            "LINEAR_REGRESSION", "MARKET_ANALYSIS", "PROPERTY_FEATURES");
+    public static final StringDictionary STATUSES = new StringDictionary("prediction status", 1024, "PENDING");
+
     private int predictionId;
     private int propertyId;
     private double predictedPrice;
     private double actualPrice;
     private double accuracy;
     private LocalDateTime predictionDate;
-    private String algorithm;
-    private String status;
+    // Codes in ALGORITHMS and STATUSES
+    private int algorithmCode = StringDictionary.NULL;
+    private int statusCode = StringDictionary.NULL;
+    // The values themselves when their code is UNENCODED
+    private String rawAlgorithm;
+    private String rawStatus;
 
     public PredictionResult() {
     }
@@ -22,9 +33,9 @@ public class PredictionResult {
     public PredictionResult(int propertyId, double predictedPrice, String algorithm) {
         this.propertyId = propertyId;
         this.predictedPrice = predictedPrice;
-        this.algorithm = algorithm;
+        encodeAlgorithm(algorithm);
         this.predictionDate = LocalDateTime.now();
-        this.status = "PENDING";
+        this.statusCode = STATUSES.encode("PENDING");
     }
 
     // Getters and Setters
@@ -77,19 +88,36 @@ public class PredictionResult {
     }
 
     public String getAlgorithm() {
-        return algorithm;
+        return algorithmCode == StringDictionary.UNENCODED ? rawAlgorithm : ALGORITHMS.decode(algorithmCode);
     }
 
     public void setAlgorithm(String algorithm) {
-        this.algorithm = algorithm;
+        encodeAlgorithm(algorithm);
+    }
+
+    private void encodeAlgorithm(String algorithm) {
+        algorithmCode = ALGORITHMS.tryEncode(algorithm);
+        rawAlgorithm = algorithmCode == StringDictionary.UNENCODED ? algorithm : null;
+    }
+
+    /**
+     * Code of getAlgorithm() in ALGORITHMS, UNENCODED algorithms must be compared with getAlgorithm()
+     */
+    public int getAlgorithmCode() {
+        return algorithmCode;
     }
 
     public String getStatus() {
-        return status;
+        return statusCode == StringDictionary.UNENCODED ? rawStatus : STATUSES.decode(statusCode);
     }
 
     public void setStatus(String status) {
-        this.status = status;
+        statusCode = STATUSES.tryEncode(status);
+        rawStatus = statusCode == StringDictionary.UNENCODED ? status : null;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
     }
 
     @Override
@@ -100,8 +128,8 @@ public class PredictionResult {
                 ", predictedPrice=" + predictedPrice +
                 ", actualPrice=" + actualPrice +
                 ", accuracy=" + accuracy +
-                ", algorithm='" + algorithm + '\'' +
-                ", status='" + status + '\'' +
+                ", algorithm='" + getAlgorithm() + '\'' +
+                ", status='" + getStatus() + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,62 @@
+package com.houseprice.model;
+
+/**
+ * Count, sum, minimum and maximum of calculated prices for one property type
+ */
+public class PriceStatistics {
+    private final String propertyType;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    public PriceStatistics(String propertyType, long count, double sum, double min, double max) {
+        this.propertyType = propertyType;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Lowest price, 0 when there are no properties
+     */
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Highest price, 0 when there are no properties
+     */
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceStatistics{" +
+                "type='" + propertyType + '\'' +
+                ", count=" + count +
+                ", sum=" + sum +
+                ", min=" + getMin() +
+                ", max=" + getMax() +
+                ", average=" + getAverage() +
+                '}';
+    }
+}
@@ -1,21 +1,38 @@
 package com.houseprice.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
+import com.houseprice.util.StringDictionary;
+
 /**
  * Abstract base class for property entities
  * Demonstrates inheritance and OOP principles
  */
 public abstract class Property implements Serializable {
     private static final long serialVersionUID = 1L;
-    
+
+    // Type codes, also the codes of PROPERTY_TYPES
+    public static final byte TYPE_RESIDENTIAL = 0;
+    public static final byte TYPE_COMMERCIAL = 1;
+    public static final byte TYPE_INDUSTRIAL = 2;
+
+    public static final StringDictionary PROPERTY_TYPES =
+            new StringDictionary("property type", 16, "RESIDENTIAL", "COMMERCIAL", "INDUSTRIAL");
+    public static final StringDictionary STATUSES = new StringDictionary("property status", 1024, "ACTIVE");
+
     protected int propertyId;
     protected String address;
     protected double area;
     protected int bedrooms;
     protected int bathrooms;
     protected int yearBuilt;
-    protected String status;
+    // Code in STATUSES, written out as its string when serialized
+    protected transient int statusCode = StringDictionary.NULL;
+    // The status itself when statusCode is UNENCODED
+    private transient String rawStatus;
 
     public Property() {
     }
@@ -26,7 +43,7 @@ public abstract class Property implements Serializable {
         this.bedrooms = bedrooms;
         this.bathrooms = bathrooms;
         this.yearBuilt = yearBuilt;
-        this.status = "ACTIVE";
+        this.statusCode = STATUSES.encode("ACTIVE");
     }
 
     // Abstract method for calculating price (polymorphism)
@@ -35,6 +52,82 @@ public abstract class Property implements Serializable {
     // Abstract method for getting property type
     public abstract String getPropertyType();
 
+    /**
+     * Code of getPropertyType(), one of the TYPE_ constants
+     */
+    public abstract byte getTypeCode();
+
+    /**
+     * Type code of a stored property_type, unknown types map to residential
+     */
+    public static byte typeCodeOf(String propertyType) {
+        int code = PROPERTY_TYPES.codeOf(propertyType);
+        return code == StringDictionary.NULL ? TYPE_RESIDENTIAL : (byte) code;
+    }
+
+    /**
+     * Independent copy of a property with the same type and attributes
+     */
+    public static Property copyOf(Property source) {
+        return copyOf(source, source.getTypeCode());
+    }
+
+    /**
+     * Copy a property as the given type; subtype attributes carry over only when the
+     * source is of that type, like the columns PropertyDAO binds
+     */
+    public static Property copyOf(Property source, byte typeCode) {
+        Property target;
+        switch (typeCode) {
+            case TYPE_COMMERCIAL:
+                CommercialProperty commercial = new CommercialProperty();
+                if (source instanceof CommercialProperty) {
+                    CommercialProperty from = (CommercialProperty) source;
+                    commercial.setRentIncome(from.getRentIncome());
+                    commercial.setHasParking(from.isHasParking());
+                    commercial.setMaxFloors(from.getMaxFloors());
+                }
+                target = commercial;
+                break;
+            case TYPE_INDUSTRIAL:
+                IndustrialProperty industrial = new IndustrialProperty();
+                if (source instanceof IndustrialProperty) {
+                    IndustrialProperty from = (IndustrialProperty) source;
+                    industrial.setLoadCapacity(from.getLoadCapacity());
+                    industrial.setHasLoding(from.isHasLoding());
+                    industrial.setZoneType(from.getZoneType());
+                }
+                target = industrial;
+                break;
+            default:
+                ResidentialProperty residential = new ResidentialProperty();
+                if (source instanceof ResidentialProperty) {
+                    ResidentialProperty from = (ResidentialProperty) source;
+                    residential.setFloors(from.getFloors());
+                    residential.setHasGarage(from.isHasGarage());
+                    residential.setHasGarden(from.isHasGarden());
+                }
+                target = residential;
+        }
+        target.setPropertyId(source.getPropertyId());
+        target.setAddress(source.getAddress());
+        target.setArea(source.getArea());
+        target.setBedrooms(source.getBedrooms());
+        target.setBathrooms(source.getBathrooms());
+        target.setYearBuilt(source.getYearBuilt());
+        target.setStatus(source.getStatus());
+        return target;
+    }
+
+    /**
+     * Numeric inputs that determine the predicted price of this property.
+     * Two properties of the same type with equal features always get equal predictions.
+     * Subclasses append the fields their own price calculation uses.
+     */
+    public double[] getPricingFeatures() {
+        return new double[] { getArea(), getBedrooms(), getBathrooms(), getYearBuilt() };
+    }
+
     // Getters and Setters
     public int getPropertyId() {
         return propertyId;
@@ -85,22 +178,45 @@ public abstract class Property implements Serializable {
     }
 
     public String getStatus() {
-        return status;
+        return statusCode == StringDictionary.UNENCODED ? rawStatus : STATUSES.decode(statusCode);
     }
 
     public void setStatus(String status) {
-        this.status = status;
+        encodeStatus(status);
+    }
+
+    private void encodeStatus(String status) {
+        statusCode = STATUSES.tryEncode(status);
+        rawStatus = statusCode == StringDictionary.UNENCODED ? status : null;
+    }
+
+    /**
+     * Code of getStatus() in STATUSES, compare it with STATUSES.codeOf(...) in hot filters.
+     * UNENCODED when STATUSES was full, such statuses must be compared with getStatus()
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(getStatus());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        encodeStatus((String) in.readObject());
     }
 
     @Override
     public String toString() {
         return "Property{" +
-                "propertyId=" + propertyId +
-                ", address='" + address + '\'' +
-                ", area=" + area +
-                ", bedrooms=" + bedrooms +
-                ", bathrooms=" + bathrooms +
-                ", yearBuilt=" + yearBuilt +
+                "propertyId=" + getPropertyId() +
+                ", address='" + getAddress() + '\'' +
+                ", area=" + getArea() +
+                ", bedrooms=" + getBedrooms() +
+                ", bathrooms=" + getBathrooms() +
+                ", yearBuilt=" + getYearBuilt() +
                 ", type='" + getPropertyType() + '\'' +
                 ", estimatedPrice=" + calculatePrice() +
                 '}';
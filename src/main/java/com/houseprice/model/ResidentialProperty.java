@@ -4,7 +4,6 @@ package com.houseprice.model;
  * Residential Property implementation (Polymorphism)
  */
 public class ResidentialProperty extends Property {
-    private String propertyType = "RESIDENTIAL";
     private int floors;
     private boolean hasGarage;
     private boolean hasGarden;
@@ -23,6 +22,14 @@ public class ResidentialProperty extends Property {
 
     @Override
     public double calculatePrice() {
+        return calculatePrice(getArea(), getBedrooms(), getYearBuilt(), isHasGarage(), isHasGarden());
+    }
+
+    /**
+     * Residential price formula, shared with bulk scoring over primitive columns
+     */
+    public static double calculatePrice(double area, int bedrooms, int yearBuilt,
+                                        boolean hasGarage, boolean hasGarden) {
         // Base price calculation for residential properties
         double basePrice = area * 1500; // $1500 per sq ft
         double pricePerBedroom = bedrooms * 50000;
@@ -36,7 +43,18 @@ public class ResidentialProperty extends Property {
 
     @Override
     public String getPropertyType() {
-        return propertyType;
+        return "RESIDENTIAL";
+    }
+
+    @Override
+    public byte getTypeCode() {
+        return TYPE_RESIDENTIAL;
+    }
+
+    @Override
+    public double[] getPricingFeatures() {
+        return new double[] { getArea(), getBedrooms(), getBathrooms(), getYearBuilt(),
+                isHasGarage() ? 1 : 0, isHasGarden() ? 1 : 0 };
     }
 
     public int getFloors() {
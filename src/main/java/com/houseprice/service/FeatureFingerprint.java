@@ -0,0 +1,44 @@
+package com.houseprice.service;
+
+import java.util.Arrays;
+
+import com.houseprice.model.Property;
+
+/**
+ * Content-addressed key built from the pricing-relevant fields of a property
+ * Properties with equal fingerprints always receive equal predictions
+ */
+final class FeatureFingerprint {
+    private final byte typeCode;
+    private final double[] features;
+    private final int hash;
+
+    private FeatureFingerprint(byte typeCode, double[] features) {
+        this.typeCode = typeCode;
+        this.features = features;
+        this.hash = 31 * typeCode + Arrays.hashCode(features);
+    }
+
+    static FeatureFingerprint of(Property property) {
+        return new FeatureFingerprint(property.getTypeCode(), property.getPricingFeatures());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FeatureFingerprint)) {
+            return false;
+        }
+        FeatureFingerprint other = (FeatureFingerprint) o;
+        return hash == other.hash
+                && typeCode == other.typeCode
+                && Arrays.equals(features, other.features);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,38 @@
+package com.houseprice.service;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window of recent latencies for one algorithm
+ * Used to decide when a slow execution should be hedged
+ */
+final class LatencyTracker {
+    private static final int WINDOW = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) {
+            count++;
+        }
+    }
+
+    /**
+     * Get the given percentile of recent latencies in nanoseconds,
+     * or -1 while there are too few samples to trust it
+     */
+    synchronized long percentile(int percentile) {
+        if (count < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+}
@@ -0,0 +1,77 @@
+package com.houseprice.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.houseprice.model.PredictionResult;
+
+/**
+ * Outcome of a prediction made under a latency budget
+ * Holds the results of the algorithms that finished in time and marks the others
+ */
+public class PartialPrediction {
+
+    public enum Status {
+        COMPLETE,
+        MISSING,
+        FAILED
+    }
+
+    private final Map<String, Status> statuses = new LinkedHashMap<>();
+    private final List<PredictionResult> results = new ArrayList<>();
+
+    void addResult(PredictionResult result) {
+        statuses.put(result.getAlgorithm(), Status.COMPLETE);
+        results.add(result);
+    }
+
+    void addMissing(String algorithm, Status status) {
+        statuses.put(algorithm, status);
+    }
+
+    /**
+     * Get the results of the algorithms that completed, in algorithm order
+     */
+    public List<PredictionResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    public Status getStatus(String algorithm) {
+        return statuses.get(algorithm);
+    }
+
+    /**
+     * Get the status of every algorithm, in algorithm order
+     */
+    public Map<String, Status> getStatuses() {
+        return Collections.unmodifiableMap(statuses);
+    }
+
+    /**
+     * Get the algorithms that did not produce a result within the budget
+     */
+    public List<String> getMissingAlgorithms() {
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, Status> entry : statuses.entrySet()) {
+            if (entry.getValue() != Status.COMPLETE) {
+                missing.add(entry.getKey());
+            }
+        }
+        return missing;
+    }
+
+    public boolean isComplete() {
+        return results.size() == statuses.size();
+    }
+
+    @Override
+    public String toString() {
+        return "PartialPrediction{" +
+                "statuses=" + statuses +
+                ", results=" + results +
+                '}';
+    }
+}
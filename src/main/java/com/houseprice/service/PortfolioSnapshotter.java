@@ -0,0 +1,138 @@
+package com.houseprice.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.houseprice.dao.Page;
+import com.houseprice.dao.PredictionResultRepository;
+import com.houseprice.dao.PropertyRepository;
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.store.PortfolioSnapshot;
+import com.houseprice.util.Logger;
+
+/**
+ * Writes and loads the portfolio snapshot used for warm starts
+ * load() prefers the snapshot file and falls back to the repositories when it is
+ * missing, unreadable or older than maxAgeMillis; the fallback also rewrites the
+ * file. start() refreshes the snapshot periodically on a daemon thread.
+ */
+public class PortfolioSnapshotter {
+    private static final int PAGE_SIZE = 1000;
+
+    private final PropertyRepository propertyRepository;
+    private final PredictionResultRepository predictionRepository;
+    private final Path file;
+    private final long maxAgeMillis;
+    private final long predictionWindowMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param maxAgeMillis snapshots older than this are ignored by load()
+     * @param predictionWindowMillis how far back predictions are included
+     */
+    public PortfolioSnapshotter(PropertyRepository propertyRepository,
+                                PredictionResultRepository predictionRepository,
+                                Path file, long maxAgeMillis, long predictionWindowMillis) {
+        this.propertyRepository = propertyRepository;
+        this.predictionRepository = predictionRepository;
+        this.file = file;
+        this.maxAgeMillis = maxAgeMillis;
+        this.predictionWindowMillis = predictionWindowMillis;
+    }
+
+    /**
+     * Load the portfolio, from the snapshot when it is fresh and valid
+     */
+    public PortfolioSnapshot load() throws DatabaseException {
+        if (Files.exists(file)) {
+            try {
+                PortfolioSnapshot snapshot = PortfolioSnapshot.read(file);
+                if (!snapshot.isOlderThan(maxAgeMillis, System.currentTimeMillis())) {
+                    Logger.info("Loaded portfolio snapshot: " + snapshot.getProperties().size() + " properties, "
+                            + snapshot.getPredictions().size() + " predictions");
+                    return snapshot;
+                }
+                Logger.info("Portfolio snapshot is stale, rebuilding from the database");
+            } catch (IOException e) {
+                Logger.warn("Ignoring portfolio snapshot: " + e.getMessage());
+            }
+        }
+        return rebuild();
+    }
+
+    /**
+     * Read the portfolio from the repositories and write a new snapshot
+     * A failed write is logged, the data read is still returned
+     */
+    public PortfolioSnapshot rebuild() throws DatabaseException {
+        long createdAt = System.currentTimeMillis();
+        List<Property> properties = new ArrayList<>();
+        try {
+            propertyRepository.forEach(properties::add);
+        } catch (DatabaseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabaseException("Error reading properties for snapshot: " + e.getMessage(), e);
+        }
+        List<PredictionResult> predictions = recentPredictions();
+
+        PortfolioSnapshot snapshot = new PortfolioSnapshot(createdAt, properties, predictions);
+        try {
+            snapshot.write(file);
+        } catch (IOException e) {
+            Logger.warn("Could not write portfolio snapshot: " + e.getMessage());
+        }
+        return snapshot;
+    }
+
+    private List<PredictionResult> recentPredictions() throws DatabaseException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(predictionWindowMillis));
+        List<PredictionResult> predictions = new ArrayList<>();
+        Page<PredictionResult> page = predictionRepository.findPage(cutoff, 0, PAGE_SIZE);
+        predictions.addAll(page.getItems());
+        while (page.hasMore()) {
+            PredictionResult last = page.getLast();
+            page = predictionRepository.findPage(last.getPredictionDate(), last.getPredictionId(), PAGE_SIZE);
+            predictions.addAll(page.getItems());
+        }
+        return predictions;
+    }
+
+    /**
+     * Refresh the snapshot every intervalMillis until shutdown()
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null || intervalMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "portfolio-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                Logger.warn("Portfolio snapshot refresh failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.houseprice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.exception.HousePriceException;
+import com.houseprice.model.PriceStatistics;
+
+/**
+ * Running price statistics per property type
+ * Loaded once from a grouped aggregate query, then kept current by applying each
+ * add, update and delete, so reads cost O(1) instead of a scan of every property.
+ * Count and sum are exact under every change; when a removal takes away the current
+ * min or max, the type's extremes are recomputed from the database on the next read.
+ *
+ * Writers bracket the database write and its delta with beginChange() and
+ * endChange(). The aggregate query runs outside the lock, and its result only
+ * replaces the running totals when no change overlapped it, since the query may or
+ * may not have seen such a change. Otherwise the result answers that one read and
+ * the next read loads again.
+ */
+public class PortfolioStatistics {
+
+    /**
+     * Source of the per-type aggregates, usually PropertyDAO.aggregatePrices()
+     */
+    public interface Loader {
+        Collection<PriceStatistics> load() throws Exception;
+    }
+
+    private final Loader loader;
+    private Map<String, Bucket> buckets = new HashMap<>();
+    private boolean loaded;
+    private boolean extremesStale;
+    // Writes between beginChange() and endChange()
+    private int changesInFlight;
+    // Bumped by every finished change and invalidate(), a load that saw it move is discarded
+    private long version;
+
+    public PortfolioStatistics(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Announce a database write; call endChange() once it and its delta are done, even if it failed
+     */
+    public synchronized void beginChange() {
+        changesInFlight++;
+    }
+
+    public synchronized void endChange() {
+        changesInFlight--;
+        version++;
+    }
+
+    /**
+     * Record a newly stored property's price
+     */
+    public synchronized void onAdd(String propertyType, double price) {
+        if (!loaded) {
+            // First read will load the row together with everything else
+            return;
+        }
+        Bucket bucket = buckets.computeIfAbsent(propertyType, t -> new Bucket());
+        bucket.count++;
+        bucket.sum += price;
+        if (bucket.count == 1) {
+            bucket.min = price;
+            bucket.max = price;
+        } else {
+            bucket.min = Math.min(bucket.min, price);
+            bucket.max = Math.max(bucket.max, price);
+        }
+    }
+
+    /**
+     * Remove a deleted property's price
+     * Removing the type's current min or max marks its extremes stale, the next read
+     * reloads them instead of reporting the removed price as a bound.
+     */
+    public synchronized void onRemove(String propertyType, double price) {
+        if (!loaded) {
+            return;
+        }
+        Bucket bucket = buckets.get(propertyType);
+        if (bucket == null || bucket.count == 0) {
+            // Out of step with the database, start over
+            invalidate();
+            return;
+        }
+        bucket.count--;
+        bucket.sum -= price;
+        if (bucket.count == 0) {
+            buckets.remove(propertyType);
+        } else if (price <= bucket.min || price >= bucket.max) {
+            extremesStale = true;
+        }
+    }
+
+    /**
+     * Replace a property's old price with its new one
+     */
+    public synchronized void onUpdate(String oldType, double oldPrice, String newType, double newPrice) {
+        onRemove(oldType, oldPrice);
+        onAdd(newType, newPrice);
+    }
+
+    /**
+     * Drop the running totals, the next read reloads them
+     */
+    public synchronized void invalidate() {
+        buckets = new HashMap<>();
+        loaded = false;
+        extremesStale = false;
+        version++;
+    }
+
+    /**
+     * Statistics for one property type, all zero when there is none of that type
+     */
+    public PriceStatistics get(String propertyType) throws HousePriceException {
+        return read(current -> {
+            Bucket bucket = current.get(propertyType);
+            return bucket == null
+                    ? new PriceStatistics(propertyType, 0, 0, 0, 0)
+                    : bucket.toStatistics(propertyType);
+        });
+    }
+
+    /**
+     * Statistics for each property type present
+     */
+    public List<PriceStatistics> byType() throws HousePriceException {
+        return read(current -> {
+            List<PriceStatistics> result = new ArrayList<>(current.size());
+            for (Map.Entry<String, Bucket> entry : current.entrySet()) {
+                result.add(entry.getValue().toStatistics(entry.getKey()));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Statistics across every property, with a null type
+     */
+    public PriceStatistics overall() throws HousePriceException {
+        return read(current -> {
+            long count = 0;
+            double sum = 0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (Bucket bucket : current.values()) {
+                count += bucket.count;
+                sum += bucket.sum;
+                min = Math.min(min, bucket.min);
+                max = Math.max(max, bucket.max);
+            }
+            return new PriceStatistics(null, count, sum, min, max);
+        });
+    }
+
+    /**
+     * Apply reader to the running totals, loading them first when missing or stale
+     */
+    private <T> T read(Function<Map<String, Bucket>, T> reader) throws HousePriceException {
+        long startVersion;
+        boolean install;
+        synchronized (this) {
+            if (loaded && !extremesStale) {
+                return reader.apply(buckets);
+            }
+            startVersion = version;
+            // A change already in flight may commit before or after the query
+            install = changesInFlight == 0;
+        }
+        Map<String, Bucket> fresh = load();
+        synchronized (this) {
+            if (install && version == startVersion && changesInFlight == 0) {
+                // A full reload also picks up changes made outside this service
+                buckets = fresh;
+                loaded = true;
+                extremesStale = false;
+            }
+            return reader.apply(fresh);
+        }
+    }
+
+    private Map<String, Bucket> load() throws HousePriceException {
+        Collection<PriceStatistics> rows;
+        try {
+            rows = loader.load();
+        } catch (HousePriceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabaseException("Error loading price statistics: " + e.getMessage(), e);
+        }
+        Map<String, Bucket> fresh = new HashMap<>();
+        for (PriceStatistics row : rows) {
+            Bucket bucket = new Bucket();
+            bucket.count = row.getCount();
+            bucket.sum = row.getSum();
+            bucket.min = row.getMin();
+            bucket.max = row.getMax();
+            fresh.put(row.getPropertyType(), bucket);
+        }
+        return fresh;
+    }
+
+    private static final class Bucket {
+        long count;
+        double sum;
+        double min;
+        double max;
+
+        PriceStatistics toStatistics(String propertyType) {
+            return new PriceStatistics(propertyType, count, sum, min, max);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.houseprice.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.houseprice.dao.IRepository;
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.exception.HousePriceException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.util.Logger;
+
+/**
+ * Write-behind queue for prediction results
+ * Callers enqueue results and return immediately; a background writer drains the
+ * queue and persists it with saveAll() once a batch fills up or the flush interval
+ * passes. When the queue is full the caller waits up to the offer timeout and then
+ * writes its own results synchronously, so a slow database throttles producers
+ * instead of dropping rows. shutdown() stops intake and writes everything queued.
+ */
+public class PredictionWriteBehind {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 200;
+
+    private final IRepository<PredictionResult> repository;
+    private final BlockingQueue<PredictionResult> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Enqueuers hold the read lock while offering, shutdown() takes the write lock to stop
+    // intake, so no result can be queued after the writer and the straggler drain are done
+    private final ReadWriteLock intake = new ReentrantReadWriteLock();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder callerWrites = new LongAdder();
+
+    /**
+     * @param capacity maximum number of queued results
+     * @param batchSize results written per saveAll() call
+     * @param flushIntervalMillis longest time a result waits for its batch to fill
+     * @param offerTimeoutMillis how long a caller waits for queue space before writing synchronously
+     */
+    public PredictionWriteBehind(IRepository<PredictionResult> repository, int capacity, int batchSize,
+                                 long flushIntervalMillis, long offerTimeoutMillis) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive");
+        }
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.writer = new Thread(this::runWriter, "prediction-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue results for persistence
+     * @throws HousePriceException if the queue stays full and the synchronous fallback write fails
+     */
+    public void enqueue(Collection<PredictionResult> results) throws HousePriceException {
+        List<PredictionResult> overflow = null;
+        intake.readLock().lock();
+        try {
+            if (!running) {
+                throw new DatabaseException("Prediction writer has been shut down");
+            }
+            for (PredictionResult result : results) {
+                if (overflow == null && queue.offer(result, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    enqueued.increment();
+                } else {
+                    if (overflow == null) {
+                        overflow = new ArrayList<>();
+                    }
+                    overflow.add(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while queueing prediction results", e);
+        } finally {
+            intake.readLock().unlock();
+        }
+        if (overflow != null) {
+            // Queue stayed full: write on the caller's thread so backpressure reaches the producer
+            callerWrites.add(overflow.size());
+            write(overflow);
+        }
+    }
+
+    private void runWriter() {
+        List<PredictionResult> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PredictionResult first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    PredictionResult next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // shutdown() interrupts to cut the wait short, the loop drains what is left
+            }
+            if (!batch.isEmpty()) {
+                writeWithRetry(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetry(List<PredictionResult> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (HousePriceException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    failed.add(batch.size());
+                    Logger.error("Dropping " + batch.size() + " prediction results after "
+                            + MAX_ATTEMPTS + " attempts", e);
+                    return;
+                }
+                Logger.warn("Prediction write failed, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+                } catch (InterruptedException interrupted) {
+                    // keep retrying, shutdown still wants the batch written
+                }
+            }
+        }
+    }
+
+    private void write(List<PredictionResult> batch) throws HousePriceException {
+        try {
+            int saved = repository.saveAll(batch);
+            written.add(saved);
+            if (saved != batch.size()) {
+                throw new DatabaseException("Saved " + saved + " of " + batch.size() + " prediction results");
+            }
+        } catch (HousePriceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabaseException("Error saving prediction results: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stop accepting results and wait for everything queued to be written
+     * Waits for enqueue() calls already offering, at most their offer timeout, before stopping intake.
+     * @return true if the queue was fully flushed within the timeout
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        intake.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            intake.writeLock().unlock();
+        }
+        writer.interrupt();
+        try {
+            writer.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writer.isAlive() && !queue.isEmpty()) {
+            // Results offered while the writer was exiting
+            List<PredictionResult> stragglers = new ArrayList<>();
+            queue.drainTo(stragglers);
+            writeWithRetry(stragglers);
+        }
+        boolean flushed = !writer.isAlive() && queue.isEmpty();
+        if (!flushed) {
+            Logger.warn("Prediction writer did not flush within " + unit.toMillis(timeout)
+                    + " ms, " + queue.size() + " results still queued");
+        }
+        return flushed;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    /**
+     * Results persisted, whether by the writer or by callers when the queue was full
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getCallerWriteCount() {
+        return callerWrites.sum();
+    }
+}
@@ -1,140 +1,630 @@
 package com.houseprice.service;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import com.houseprice.exception.HousePriceException;
 import com.houseprice.model.PredictionResult;
 import com.houseprice.model.Property;
+import com.houseprice.service.algorithm.LinearRegressionAlgorithm;
+import com.houseprice.service.algorithm.MarketAnalysisAlgorithm;
+import com.houseprice.service.algorithm.PredictionAlgorithm;
+import com.houseprice.service.algorithm.PropertyFeaturesAlgorithm;
+import com.houseprice.util.AppConfig;
+import com.houseprice.util.BoundedCache;
+import com.houseprice.util.ExecutorFactory;
+import com.houseprice.util.collection.IntObjectMap;
 
 /**
  * Price Prediction Engine with Multithreading
  * Handles concurrent price predictions using multiple algorithms
+ * Algorithms are plugged in through the PredictionAlgorithm SPI; expensive ones run
+ * on a dedicated executor each. Cheap ones run inline for predictPrice(), and as one
+ * task on the async executor for the async and budgeted calls, so those never block
+ * the caller and their deadline covers every algorithm.
+ * Executors follow the thread.mode setting (see ExecutorFactory)
  */
 public class PricePredictionEngine {
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = 512;
+
     private ExecutorService executorService;
-    private List<PredictionResult> predictionCache;
-    private final Object cacheLock = new Object();
+    // Runs the cheap algorithms of async and budgeted predictions
+    private final ExecutorService asyncExecutor;
+    private final List<PredictionAlgorithm> algorithms;
+    // Dedicated pool per expensive algorithm; cheap algorithms have no entry
+    private final Map<PredictionAlgorithm, ExecutorService> algorithmExecutors = new LinkedHashMap<>();
+    private final Map<PredictionAlgorithm, LatencyTracker> latencyTrackers = new LinkedHashMap<>();
+    private final boolean hedgingEnabled;
+    // Latest prediction per algorithm, keyed by property id; null when caching is disabled
+    private final BoundedCache<Integer, Map<String, PredictionResult>> predictionCache;
+    // Algorithm outputs keyed by pricing features, shared by all properties with identical inputs;
+    // null when disabled or when any algorithm is not deterministic
+    private final BoundedCache<FeatureFingerprint, List<PredictionResult>> predictionMemo;
+    private final int threadPoolSize;
+    private final long timeoutMillis;
 
+    /**
+     * Create an engine whose prediction cache is configured by the
+     * cache.enabled, cache.size and cache.ttl.seconds settings
+     */
     public PricePredictionEngine(int threadPoolSize) {
-        this.executorService = Executors.newFixedThreadPool(threadPoolSize);
-        this.predictionCache = Collections.synchronizedList(new ArrayList<>());
+        this(threadPoolSize,
+                AppConfig.getBoolean("cache.enabled", true) ? AppConfig.getInt("cache.size", 100) : 0,
+                AppConfig.getLong("cache.ttl.seconds", 600) * 1000);
+    }
+
+    /**
+     * @param cacheSize maximum number of cached properties, 0 disables the cache
+     * @param cacheTtlMillis time to live of cached predictions, 0 or less for no expiry
+     */
+    public PricePredictionEngine(int threadPoolSize, int cacheSize, long cacheTtlMillis) {
+        this(threadPoolSize, cacheSize, cacheTtlMillis, loadAlgorithms());
+    }
+
+    /**
+     * Create an engine with an explicit set of algorithms instead of the discovered ones
+     */
+    public PricePredictionEngine(int threadPoolSize, int cacheSize, long cacheTtlMillis,
+                                 List<PredictionAlgorithm> algorithms) {
+        if (algorithms.isEmpty()) {
+            throw new IllegalArgumentException("At least one prediction algorithm is required");
+        }
+        this.algorithms = new ArrayList<>(algorithms);
+        for (PredictionAlgorithm algorithm : this.algorithms) {
+            if (algorithm.isExpensive()) {
+                algorithmExecutors.put(algorithm,
+                        ExecutorFactory.newExecutor(threadPoolSize, "prediction-" + algorithm.getName().toLowerCase()));
+                latencyTrackers.put(algorithm, new LatencyTracker());
+            }
+        }
+        this.executorService = ExecutorFactory.newExecutor(threadPoolSize, "prediction-batch");
+        this.asyncExecutor = ExecutorFactory.newExecutor(threadPoolSize, "prediction-async");
+        this.predictionCache = cacheSize > 0 ? new BoundedCache<>(cacheSize, cacheTtlMillis) : null;
+        this.predictionMemo = AppConfig.getBoolean("memo.enabled", true)
+                && this.algorithms.stream().allMatch(PredictionAlgorithm::isDeterministic)
+                ? new BoundedCache<>(AppConfig.getInt("memo.size", 10000), 0)
+                : null;
+        this.threadPoolSize = threadPoolSize;
+        this.timeoutMillis = AppConfig.getLong("thread.timeout", 10) * 1000;
+        this.hedgingEnabled = AppConfig.getBoolean("prediction.hedge.enabled", false);
+    }
+
+    /**
+     * Discover algorithms registered under META-INF/services, falling back to the
+     * built-in ones when none are found (e.g. when compiled without resources)
+     */
+    private static List<PredictionAlgorithm> loadAlgorithms() {
+        List<PredictionAlgorithm> discovered = new ArrayList<>();
+        for (PredictionAlgorithm algorithm : ServiceLoader.load(PredictionAlgorithm.class)) {
+            discovered.add(algorithm);
+        }
+        if (discovered.isEmpty()) {
+            discovered.add(new LinearRegressionAlgorithm());
+            discovered.add(new PropertyFeaturesAlgorithm());
+            discovered.add(new MarketAnalysisAlgorithm());
+        }
+        return discovered;
+    }
+
+    /**
+     * Get the algorithms this engine runs, in result order
+     */
+    public List<PredictionAlgorithm> getAlgorithms() {
+        return Collections.unmodifiableList(algorithms);
     }
 
     /**
      * Predict price for a property using multiple algorithms concurrently
+     * The caller blocks anyway, so cheap algorithms run on its thread and only the
+     * expensive ones are subject to the thread.timeout deadline.
      */
     public List<PredictionResult> predictPrice(Property property) throws HousePriceException {
-        List<Future<PredictionResult>> futures = new ArrayList<>();
-        List<PredictionResult> results = new ArrayList<>();
+        try {
+            return predict(property, timeoutMillis, TimeUnit.MILLISECONDS, false).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HousePriceException("Error during concurrent predictions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new HousePriceException("Prediction timeout", e.getCause());
+            }
+            throw new HousePriceException("Error during concurrent predictions", e.getCause());
+        }
+    }
+
+    /**
+     * Predict price without blocking the caller, using the thread.timeout deadline
+     */
+    public CompletableFuture<List<PredictionResult>> predictPriceAsync(Property property) {
+        return predictPriceAsync(property, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Predict price without blocking the caller.
+     * Cheap algorithms run on the async executor and expensive ones on their own pools.
+     * If the deadline passes first, the returned future fails with a TimeoutException
+     * and every unfinished algorithm is cancelled.
+     */
+    public CompletableFuture<List<PredictionResult>> predictPriceAsync(Property property, long timeout, TimeUnit unit) {
+        return predict(property, timeout, unit, true);
+    }
+
+    private CompletableFuture<List<PredictionResult>> predict(Property property, long timeout, TimeUnit unit,
+                                                              boolean offloadCheap) {
+        FeatureFingerprint fingerprint = predictionMemo != null ? FeatureFingerprint.of(property) : null;
+        List<PredictionResult> memoized = lookupMemo(fingerprint, property);
+        if (memoized != null) {
+            cachePredictions(property.getPropertyId(), memoized);
+            return CompletableFuture.completedFuture(memoized);
+        }
+
+        List<CompletableFuture<PredictionResult>> futures = launchAlgorithms(property, offloadCheap);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .orTimeout(timeout, unit)
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        futures.forEach(future -> future.cancel(true));
+                        throw error instanceof CompletionException
+                                ? (CompletionException) error
+                                : new CompletionException(error);
+                    }
+                    List<PredictionResult> results = new ArrayList<>(futures.size());
+                    for (CompletableFuture<PredictionResult> future : futures) {
+                        results.add(future.join());
+                    }
+                    storeMemo(fingerprint, results);
+                    cachePredictions(property.getPropertyId(), results);
+                    return results;
+                });
+    }
+
+    /**
+     * Predict price within a latency budget, returning whatever finished in time.
+     * Every algorithm runs off the caller thread, so the budget applies to all of them.
+     * Algorithms still running when the budget is spent are cancelled and reported
+     * as missing instead of failing the whole call.
+     */
+    public PartialPrediction predictWithinBudget(Property property, long budget, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(budget);
+        PartialPrediction partial = new PartialPrediction();
 
+        FeatureFingerprint fingerprint = predictionMemo != null ? FeatureFingerprint.of(property) : null;
+        List<PredictionResult> memoized = lookupMemo(fingerprint, property);
+        if (memoized != null) {
+            memoized.forEach(partial::addResult);
+            cachePredictions(property.getPropertyId(), memoized);
+            return partial;
+        }
+
+        List<CompletableFuture<PredictionResult>> futures = launchAlgorithms(property, true);
         try {
-            // Submit multiple prediction tasks
-            futures.add(executorService.submit(() -> predictUsingLinearRegression(property)));
-            futures.add(executorService.submit(() -> predictUsingPropertyFeatures(property)));
-            futures.add(executorService.submit(() -> predictUsingMarketAnalysis(property)));
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Reported per algorithm below
+        }
 
-            // Collect results from all threads
-            for (Future<PredictionResult> future : futures) {
-                try {
-                    PredictionResult result = future.get(10, TimeUnit.SECONDS);
-                    results.add(result);
-                    synchronized (cacheLock) {
-                        predictionCache.add(result);
+        List<PredictionResult> completed = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<PredictionResult> future = futures.get(i);
+            String name = algorithms.get(i).getName();
+            if (!future.isDone()) {
+                future.cancel(true);
+                partial.addMissing(name, PartialPrediction.Status.MISSING);
+            } else if (future.isCompletedExceptionally()) {
+                partial.addMissing(name, PartialPrediction.Status.FAILED);
+            } else {
+                PredictionResult result = future.join();
+                partial.addResult(result);
+                completed.add(result);
+            }
+        }
+
+        if (partial.isComplete()) {
+            storeMemo(fingerprint, completed);
+        }
+        cachePredictions(property.getPropertyId(), completed);
+        return partial;
+    }
+
+    /**
+     * Start every algorithm for a property, in algorithm order
+     * @param offloadCheap run the cheap algorithms on the async executor instead of the caller thread
+     */
+    private List<CompletableFuture<PredictionResult>> launchAlgorithms(Property property, boolean offloadCheap) {
+        List<CompletableFuture<PredictionResult>> futures = new ArrayList<>(algorithms.size());
+        // Offload expensive algorithms first so they overlap with the cheap ones
+        for (PredictionAlgorithm algorithm : algorithms) {
+            futures.add(algorithmExecutors.containsKey(algorithm) ? submitAlgorithm(algorithm, property) : null);
+        }
+        List<PredictionAlgorithm> cheap = new ArrayList<>(algorithms.size());
+        List<CompletableFuture<PredictionResult>> cheapFutures = new ArrayList<>(algorithms.size());
+        for (int i = 0; i < algorithms.size(); i++) {
+            if (futures.get(i) == null) {
+                CompletableFuture<PredictionResult> promise = new CompletableFuture<>();
+                futures.set(i, promise);
+                cheap.add(algorithms.get(i));
+                cheapFutures.add(promise);
+            }
+        }
+        if (cheap.isEmpty()) {
+            return futures;
+        }
+        if (!offloadCheap) {
+            runCheap(cheap, cheapFutures, property);
+            return futures;
+        }
+        try {
+            // One task for all cheap algorithms, they cost less than a hand-off each
+            Future<?> task = asyncExecutor.submit(() -> runCheap(cheap, cheapFutures, property));
+            for (CompletableFuture<PredictionResult> promise : cheapFutures) {
+                promise.whenComplete((result, error) -> {
+                    if (promise.isCancelled()) {
+                        task.cancel(true);
                     }
-                } catch (TimeoutException e) {
-                    throw new HousePriceException("Prediction timeout", e);
+                });
+            }
+        } catch (RejectedExecutionException e) {
+            cheapFutures.forEach(promise -> promise.completeExceptionally(e));
+        }
+        return futures;
+    }
+
+    private void runCheap(List<PredictionAlgorithm> cheap, List<CompletableFuture<PredictionResult>> promises,
+                          Property property) {
+        for (int i = 0; i < cheap.size(); i++) {
+            CompletableFuture<PredictionResult> promise = promises.get(i);
+            if (promise.isDone()) {
+                continue;
+            }
+            try {
+                promise.complete(runAlgorithm(cheap.get(i), property));
+            } catch (RuntimeException e) {
+                promise.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Run an algorithm on its pool; cancelling the returned future interrupts the worker.
+     * With hedging enabled, a duplicate is launched if the first attempt is still running
+     * after the algorithm's p95 latency, and whichever attempt finishes first wins.
+     * Only expensive algorithms are hedged; the built-in ones are cheap and never are.
+     */
+    private CompletableFuture<PredictionResult> submitAlgorithm(PredictionAlgorithm algorithm, Property property) {
+        CompletableFuture<PredictionResult> promise = new CompletableFuture<>();
+        List<Future<?>> attempts = new CopyOnWriteArrayList<>();
+        launchAttempt(algorithm, property, promise, attempts);
+
+        if (hedgingEnabled) {
+            long hedgeDelay = latencyTrackers.get(algorithm).percentile(95);
+            if (hedgeDelay > 0) {
+                CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.NANOSECONDS).execute(() -> {
+                    if (!promise.isDone()) {
+                        launchAttempt(algorithm, property, promise, attempts);
+                    }
+                });
+            }
+        }
+
+        // Losing attempts are dropped; only a cancelled caller interrupts running workers
+        promise.whenComplete((result, error) -> {
+            boolean interrupt = promise.isCancelled();
+            attempts.forEach(attempt -> attempt.cancel(interrupt));
+        });
+        return promise;
+    }
+
+    private void launchAttempt(PredictionAlgorithm algorithm, Property property,
+                               CompletableFuture<PredictionResult> promise, List<Future<?>> attempts) {
+        LatencyTracker tracker = latencyTrackers.get(algorithm);
+        try {
+            attempts.add(algorithmExecutors.get(algorithm).submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    PredictionResult result = runAlgorithm(algorithm, property);
+                    tracker.record(System.nanoTime() - start);
+                    promise.complete(result);
+                } catch (Throwable t) {
+                    promise.completeExceptionally(t);
                 }
+            }));
+        } catch (RejectedExecutionException e) {
+            promise.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Predict prices for many properties at once.
+     * The input is split into chunks and each chunk runs all algorithms in a single task,
+     * so scheduling cost is paid per chunk instead of per property and algorithm.
+     * Returns one result list per property, in input order.
+     */
+    public List<List<PredictionResult>> predictBatch(Collection<? extends Property> properties)
+            throws HousePriceException {
+        return predictBatch(properties, DEFAULT_BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Predict prices for many properties using the given chunk size
+     */
+    public List<List<PredictionResult>> predictBatch(Collection<? extends Property> properties, int chunkSize)
+            throws HousePriceException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        List<Future<List<List<PredictionResult>>>> futures = new ArrayList<>();
+        List<Property> chunk = new ArrayList<>(Math.min(chunkSize, properties.size()));
+        for (Property property : properties) {
+            chunk.add(property);
+            if (chunk.size() == chunkSize) {
+                futures.add(submitChunk(chunk));
+                chunk = new ArrayList<>(chunkSize);
             }
-        } catch (InterruptedException | ExecutionException e) {
-            throw new HousePriceException("Error during concurrent predictions", e);
+        }
+        if (!chunk.isEmpty()) {
+            futures.add(submitChunk(chunk));
         }
 
+        List<List<PredictionResult>> results = new ArrayList<>(properties.size());
+        for (Future<List<List<PredictionResult>>> future : futures) {
+            results.addAll(awaitChunk(future));
+        }
         return results;
     }
 
     /**
-     * Linear Regression based prediction algorithm
+     * Streaming variant of {@link #predictBatch(Collection)} for inputs that do not fit in memory.
+     * Chunks are pulled from the source lazily and at most one chunk per worker thread is in flight,
+     * so memory stays bounded regardless of input size. Results are returned in input order.
+     * Failures surface as an unchecked {@link IllegalStateException} wrapping the {@link HousePriceException}.
      */
-    private PredictionResult predictUsingLinearRegression(Property property) {
-        double price = property.calculatePrice();
-        double adjustedPrice = price * 1.05; // 5% adjustment factor
-        
-        PredictionResult result = new PredictionResult(property.getPropertyId(), adjustedPrice, "LINEAR_REGRESSION");
-        result.setAccuracy(92.5);
-        return result;
+    public Iterator<List<PredictionResult>> predictBatch(Iterator<? extends Property> properties, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        return new BatchPredictionIterator(properties, chunkSize);
+    }
+
+    private Future<List<List<PredictionResult>>> submitChunk(List<Property> chunk) {
+        return executorService.submit(() -> predictChunk(chunk));
+    }
+
+    private List<List<PredictionResult>> awaitChunk(Future<List<List<PredictionResult>>> future)
+            throws HousePriceException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HousePriceException("Batch prediction interrupted", e);
+        } catch (ExecutionException e) {
+            throw new HousePriceException("Error during batch predictions", e.getCause());
+        }
     }
 
     /**
-     * Property Features based prediction algorithm
+     * Runs every algorithm for every property of a chunk on the current thread
      */
-    private PredictionResult predictUsingPropertyFeatures(Property property) {
-        double basePrice = property.getArea() * 1200;
-        double bedroomFactor = property.getBedrooms() * 35000;
-        double bathroomFactor = property.getBathrooms() * 15000;
-        double ageFactor = (2024 - property.getYearBuilt()) * (-800);
-        
-        double price = basePrice + bedroomFactor + bathroomFactor + ageFactor;
-        
-        PredictionResult result = new PredictionResult(property.getPropertyId(), price, "PROPERTY_FEATURES");
-        result.setAccuracy(88.3);
-        return result;
+    private List<List<PredictionResult>> predictChunk(List<Property> chunk) {
+        List<List<PredictionResult>> chunkResults = new ArrayList<>(chunk.size());
+        for (Property property : chunk) {
+            FeatureFingerprint fingerprint = predictionMemo != null ? FeatureFingerprint.of(property) : null;
+            List<PredictionResult> results = lookupMemo(fingerprint, property);
+            if (results == null) {
+                results = new ArrayList<>(algorithms.size());
+                for (PredictionAlgorithm algorithm : algorithms) {
+                    results.add(runAlgorithm(algorithm, property));
+                }
+                storeMemo(fingerprint, results);
+            }
+            cachePredictions(property.getPropertyId(), results);
+            chunkResults.add(results);
+        }
+        return chunkResults;
+    }
+
+    /**
+     * Lazily chunks the source iterator and keeps a bounded window of chunks in flight
+     */
+    private class BatchPredictionIterator implements Iterator<List<PredictionResult>> {
+        private final Iterator<? extends Property> source;
+        private final int chunkSize;
+        private final Deque<Future<List<List<PredictionResult>>>> inFlight = new ArrayDeque<>();
+        private Iterator<List<PredictionResult>> current = Collections.emptyIterator();
+
+        BatchPredictionIterator(Iterator<? extends Property> source, int chunkSize) {
+            this.source = source;
+            this.chunkSize = chunkSize;
+            fill();
+        }
+
+        private void fill() {
+            while (inFlight.size() < threadPoolSize && source.hasNext()) {
+                List<Property> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && source.hasNext()) {
+                    chunk.add(source.next());
+                }
+                inFlight.addLast(submitChunk(chunk));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (inFlight.isEmpty()) {
+                    return false;
+                }
+                try {
+                    current = awaitChunk(inFlight.removeFirst()).iterator();
+                } catch (HousePriceException e) {
+                    inFlight.forEach(future -> future.cancel(true));
+                    inFlight.clear();
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                fill();
+            }
+            return true;
+        }
+
+        @Override
+        public List<PredictionResult> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
     }
 
     /**
-     * Market Analysis based prediction algorithm
+     * Run one algorithm and wrap its price in a PredictionResult
      */
-    private PredictionResult predictUsingMarketAnalysis(Property property) {
-        double marketMultiplier = 1.15; // Market growth factor
-        double price = property.calculatePrice() * marketMultiplier;
-        
-        PredictionResult result = new PredictionResult(property.getPropertyId(), price, "MARKET_ANALYSIS");
-        result.setAccuracy(85.7);
+    private PredictionResult runAlgorithm(PredictionAlgorithm algorithm, Property property) {
+        PredictionResult result = new PredictionResult(
+                property.getPropertyId(), algorithm.predict(property), algorithm.getName());
+        result.setAccuracy(algorithm.getAccuracy());
         return result;
     }
 
     /**
-     * Get cached predictions for a property
+     * Rebuild results for a property from a memoized prediction with the same fingerprint,
+     * or return null on a miss
      */
-    public synchronized List<PredictionResult> getCachedPredictions(int propertyId) {
-        List<PredictionResult> filtered = new ArrayList<>();
-        synchronized (cacheLock) {
-            for (PredictionResult result : predictionCache) {
-                if (result.getPropertyId() == propertyId) {
-                    filtered.add(result);
-                }
+    private List<PredictionResult> lookupMemo(FeatureFingerprint fingerprint, Property property) {
+        if (fingerprint == null) {
+            return null;
+        }
+        List<PredictionResult> templates = predictionMemo.get(fingerprint);
+        if (templates == null) {
+            return null;
+        }
+        List<PredictionResult> results = new ArrayList<>(templates.size());
+        for (PredictionResult template : templates) {
+            PredictionResult result = new PredictionResult(
+                    property.getPropertyId(), template.getPredictedPrice(), template.getAlgorithm());
+            result.setAccuracy(template.getAccuracy());
+            results.add(result);
+        }
+        return results;
+    }
+
+    private void storeMemo(FeatureFingerprint fingerprint, List<PredictionResult> results) {
+        if (fingerprint != null) {
+            predictionMemo.put(fingerprint, new ArrayList<>(results));
+        }
+    }
+
+    /**
+     * Get hit, miss and eviction counters of the feature memo, or null when memoization is disabled
+     */
+    public BoundedCache.Stats getMemoStats() {
+        return predictionMemo != null ? predictionMemo.getStats() : null;
+    }
+
+    /**
+     * Store the latest result of each algorithm for a property
+     */
+    private void cachePredictions(int propertyId, List<PredictionResult> results) {
+        if (predictionCache == null) {
+            return;
+        }
+        predictionCache.compute(propertyId, (id, cached) -> {
+            Map<String, PredictionResult> updated = cached != null
+                    ? new LinkedHashMap<>(cached)
+                    : new LinkedHashMap<>();
+            for (PredictionResult result : results) {
+                updated.put(result.getAlgorithm(), result);
             }
+            return updated;
+        });
+    }
+
+    /**
+     * Seed the prediction cache with stored results, e.g. from a portfolio snapshot
+     * Results are applied in order, so the latest one per property and algorithm wins.
+     */
+    public void primeCache(Collection<PredictionResult> results) {
+        if (predictionCache == null) {
+            return;
         }
-        return filtered;
+        IntObjectMap<List<PredictionResult>> byProperty = new IntObjectMap<>(results.size());
+        for (PredictionResult result : results) {
+            List<PredictionResult> forProperty = byProperty.get(result.getPropertyId());
+            if (forProperty == null) {
+                forProperty = new ArrayList<>(4);
+                byProperty.put(result.getPropertyId(), forProperty);
+            }
+            forProperty.add(result);
+        }
+        byProperty.forEach(this::cachePredictions);
+    }
+
+    /**
+     * Get cached predictions for a property
+     */
+    public List<PredictionResult> getCachedPredictions(int propertyId) {
+        if (predictionCache == null) {
+            return new ArrayList<>();
+        }
+        Map<String, PredictionResult> cached = predictionCache.get(propertyId);
+        return cached != null ? new ArrayList<>(cached.values()) : new ArrayList<>();
     }
 
     /**
      * Clear prediction cache
      */
-    public synchronized void clearCache() {
-        synchronized (cacheLock) {
+    public void clearCache() {
+        if (predictionCache != null) {
             predictionCache.clear();
         }
     }
 
     /**
-     * Shutdown executor service
+     * Get hit, miss and eviction counters of the prediction cache, or null when caching is disabled
+     */
+    public BoundedCache.Stats getCacheStats() {
+        return predictionCache != null ? predictionCache.getStats() : null;
+    }
+
+    /**
+     * Shutdown executor services
      */
     public void shutdown() {
-        executorService.shutdown();
+        shutdownExecutor(executorService);
+        shutdownExecutor(asyncExecutor);
+        for (ExecutorService executor : algorithmExecutors.values()) {
+            shutdownExecutor(executor);
+        }
+    }
+
+    private static void shutdownExecutor(ExecutorService executor) {
+        executor.shutdown();
         try {
-            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
             }
         } catch (InterruptedException e) {
-            executorService.shutdownNow();
+            executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
@@ -1,27 +1,69 @@
 package com.houseprice.service;
 
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import com.houseprice.dao.PredictionResultDAO;
-import com.houseprice.dao.PropertyDAO;
+import com.houseprice.dao.Page;
+import com.houseprice.dao.PredictionResultRepository;
+import com.houseprice.dao.PropertyRepository;
+import com.houseprice.dao.RepositoryFactory;
 import com.houseprice.exception.DatabaseException;
 import com.houseprice.exception.HousePriceException;
 import com.houseprice.exception.ValidationException;
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
 import com.houseprice.model.PredictionResult;
+import com.houseprice.model.PriceStatistics;
 import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.store.ColumnarPropertyStore;
+import com.houseprice.store.OffHeapPropertyTable;
+import com.houseprice.store.PortfolioSnapshot;
+import com.houseprice.util.AppConfig;
+import com.houseprice.util.ReadThroughCache;
 
 /**
  * Property Service - Business logic layer
  * Handles property operations and price calculations
  */
 public class PropertyService {
-    private PropertyDAO propertyDAO;
-    private PredictionResultDAO predictionDAO;
+    // MySQL DAOs or embedded repositories, see repository.backend
+    private PropertyRepository propertyDAO;
+    private PredictionResultRepository predictionDAO;
+    // Created on first use when prediction.writebehind.enabled is set
+    private PredictionWriteBehind writeBehind;
+    private final PortfolioStatistics portfolioStatistics;
+    // Read-through cache in front of findById, null when property.cache.enabled is off
+    private final ReadThroughCache<Integer, Property> propertyCache;
+    // Created by warmStart() when snapshot.enabled is set
+    private PortfolioSnapshotter snapshotter;
+    // Striped by property id; an update or delete reads the previous row, writes, then
+    // applies the statistics delta under one of these, so two writers of an id cannot
+    // both remove the same previous price
+    private final Object[] writeLocks = new Object[64];
 
     public PropertyService() {
-        this.propertyDAO = new PropertyDAO();
-        this.predictionDAO = new PredictionResultDAO();
+        this(RepositoryFactory.propertyRepository(), RepositoryFactory.predictionResultRepository());
+    }
+
+    /**
+     * Service over explicit repositories instead of the repository.backend ones
+     */
+    public PropertyService(PropertyRepository propertyDAO, PredictionResultRepository predictionDAO) {
+        this.propertyDAO = propertyDAO;
+        this.predictionDAO = predictionDAO;
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new Object();
+        }
+        this.portfolioStatistics = new PortfolioStatistics(propertyDAO::aggregatePrices);
+        this.propertyCache = AppConfig.getBoolean("property.cache.enabled", true)
+                ? new ReadThroughCache<>(AppConfig.getInt("property.cache.size", 1000),
+                        AppConfig.getLong("property.cache.ttl.seconds", 60) * 1000, propertyDAO::findById)
+                : null;
     }
 
     /**
@@ -37,8 +79,14 @@ public class PropertyService {
                 throw new ValidationException("Invalid property dimensions");
             }
             
-            if (!propertyDAO.save(property)) {
-                throw new DatabaseException("Failed to save property to database");
+            portfolioStatistics.beginChange();
+            try {
+                if (!propertyDAO.save(property)) {
+                    throw new DatabaseException("Failed to save property to database");
+                }
+                portfolioStatistics.onAdd(property.getPropertyType(), property.calculatePrice());
+            } finally {
+                portfolioStatistics.endChange();
             }
         } catch (HousePriceException e) {
             throw e;
@@ -58,16 +106,53 @@ public class PropertyService {
         }
     }
 
+    /**
+     * Get one page of properties in id order, starting after afterId (0 for the first page)
+     */
+    public Page<Property> getPropertiesPage(int afterId, int limit) throws HousePriceException {
+        try {
+            return propertyDAO.findPage(afterId, pageLimit(limit));
+        } catch (Exception e) {
+            throw new DatabaseException("Error retrieving properties page: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get one page of prediction results in date order
+     * Pass a null afterDate for the first page, otherwise the date and id of the previous page's last result
+     */
+    public Page<PredictionResult> getPredictionResultsPage(LocalDateTime afterDate, int afterId, int limit)
+            throws HousePriceException {
+        try {
+            return predictionDAO.findPage(afterDate, afterId, pageLimit(limit));
+        } catch (Exception e) {
+            throw new DatabaseException("Error retrieving predictions page: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Clamp a requested page size to [1, page.size.max], non-positive sizes get page.size
+     */
+    private static int pageLimit(int requested) {
+        if (requested <= 0) {
+            return AppConfig.getInt("page.size", 50);
+        }
+        return Math.min(requested, AppConfig.getInt("page.size.max", 500));
+    }
+
     /**
      * Get property by ID
+     * Served from the property cache when enabled; callers get their own copy and may modify it
      */
     public Property getPropertyById(int propertyId) throws HousePriceException {
         try {
-            Property property = propertyDAO.findById(propertyId);
+            Property property = propertyCache != null
+                    ? propertyCache.get(propertyId)
+                    : propertyDAO.findById(propertyId);
             if (property == null) {
                 throw new ValidationException("Property with ID " + propertyId + " not found");
             }
-            return property;
+            return propertyCache != null ? Property.copyOf(property) : property;
         } catch (HousePriceException e) {
             throw e;
         } catch (Exception e) {
@@ -80,8 +165,13 @@ public class PropertyService {
      */
     public void updateProperty(Property property) throws HousePriceException {
         try {
-            if (!propertyDAO.update(property)) {
-                throw new DatabaseException("Failed to update property in database");
+            portfolioStatistics.beginChange();
+            try {
+                synchronized (writeLock(property.getPropertyId())) {
+                    applyUpdate(property);
+                }
+            } finally {
+                portfolioStatistics.endChange();
             }
         } catch (HousePriceException e) {
             throw e;
@@ -90,13 +180,34 @@ public class PropertyService {
         }
     }
 
+    private void applyUpdate(Property property) throws Exception {
+        Property previous = propertyDAO.findById(property.getPropertyId());
+        boolean updated = propertyDAO.update(property);
+        invalidateCachedProperty(property.getPropertyId());
+        if (!updated) {
+            throw new DatabaseException("Failed to update property in database");
+        }
+        if (previous == null || !previous.getPropertyType().equals(property.getPropertyType())) {
+            // The stored type is not updated, so the new price cannot be derived from this object
+            portfolioStatistics.invalidate();
+        } else {
+            portfolioStatistics.onUpdate(previous.getPropertyType(), previous.calculatePrice(),
+                    property.getPropertyType(), property.calculatePrice());
+        }
+    }
+
     /**
      * Delete property
      */
     public void deleteProperty(int propertyId) throws HousePriceException {
         try {
-            if (!propertyDAO.delete(propertyId)) {
-                throw new DatabaseException("Failed to delete property from database");
+            portfolioStatistics.beginChange();
+            try {
+                synchronized (writeLock(propertyId)) {
+                    applyDelete(propertyId);
+                }
+            } finally {
+                portfolioStatistics.endChange();
             }
         } catch (HousePriceException e) {
             throw e;
@@ -105,13 +216,47 @@ public class PropertyService {
         }
     }
 
+    private void applyDelete(int propertyId) throws Exception {
+        Property previous = propertyDAO.findById(propertyId);
+        boolean deleted = propertyDAO.delete(propertyId);
+        invalidateCachedProperty(propertyId);
+        if (!deleted) {
+            throw new DatabaseException("Failed to delete property from database");
+        }
+        if (previous == null) {
+            portfolioStatistics.invalidate();
+        } else {
+            portfolioStatistics.onRemove(previous.getPropertyType(), previous.calculatePrice());
+        }
+    }
+
+    private Object writeLock(int propertyId) {
+        return writeLocks[Math.floorMod(propertyId, writeLocks.length)];
+    }
+
+    private void invalidateCachedProperty(int propertyId) {
+        if (propertyCache != null) {
+            propertyCache.invalidate(propertyId);
+        }
+    }
+
+    /**
+     * Get hit ratio, load count and load time of the property cache, or null when it is disabled
+     */
+    public ReadThroughCache.Stats getPropertyCacheStats() {
+        return propertyCache != null ? propertyCache.getStats() : null;
+    }
+
     /**
      * Get properties by type (Collections & Generics)
      */
     public <T extends Property> List<T> getPropertiesByType(Class<T> type) throws HousePriceException {
         try {
-            List<Property> allProperties = propertyDAO.findAll();
-            return allProperties.stream()
+            String propertyType = propertyTypeOf(type);
+            List<Property> candidates = propertyType != null
+                    ? propertyDAO.findByType(propertyType)
+                    : propertyDAO.findAll();
+            return candidates.stream()
                     .filter(p -> type.isInstance(p))
                     .map(type::cast)
                     .collect(Collectors.toList());
@@ -120,18 +265,85 @@ public class PropertyService {
         }
     }
 
+    /**
+     * Get properties built between two years, inclusive
+     */
+    public List<Property> getPropertiesByYearBuilt(int fromYear, int toYear) throws HousePriceException {
+        try {
+            return propertyDAO.findByYearBuiltBetween(fromYear, toYear);
+        } catch (Exception e) {
+            throw new DatabaseException("Error retrieving properties by year: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get properties with an area between two bounds, inclusive
+     */
+    public List<Property> getPropertiesByArea(double minArea, double maxArea) throws HousePriceException {
+        try {
+            return propertyDAO.findByAreaBetween(minArea, maxArea);
+        } catch (Exception e) {
+            throw new DatabaseException("Error retrieving properties by area: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * property_type value stored for a concrete property class, null for Property itself
+     */
+    private static String propertyTypeOf(Class<? extends Property> type) {
+        if (type == ResidentialProperty.class) {
+            return "RESIDENTIAL";
+        }
+        if (type == CommercialProperty.class) {
+            return "COMMERCIAL";
+        }
+        if (type == IndustrialProperty.class) {
+            return "INDUSTRIAL";
+        }
+        return null;
+    }
+
     /**
      * Calculate average price for properties
      */
     public double getAveragePredictedPrice() throws HousePriceException {
+        return portfolioStatistics.overall().getAverage();
+    }
+
+    /**
+     * Price count, sum, min, max and average for each property type
+     */
+    public List<PriceStatistics> getPortfolioStatistics() throws HousePriceException {
+        return portfolioStatistics.byType();
+    }
+
+    /**
+     * Price statistics for one stored property_type, e.g. RESIDENTIAL
+     */
+    public PriceStatistics getPriceStatistics(String propertyType) throws HousePriceException {
+        return portfolioStatistics.get(propertyType);
+    }
+
+    /**
+     * Load all properties into a columnar store for portfolio-wide scoring
+     */
+    public ColumnarPropertyStore loadColumnarStore() throws HousePriceException {
+        try {
+            return ColumnarPropertyStore.load(propertyDAO);
+        } catch (Exception e) {
+            throw new DatabaseException("Error loading columnar store: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Load all properties into an off-heap table of flyweight views
+     * Keeps large portfolios out of the Java heap; close the table when done with it.
+     */
+    public OffHeapPropertyTable loadOffHeapTable() throws HousePriceException {
         try {
-            List<Property> properties = propertyDAO.findAll();
-            return properties.stream()
-                    .mapToDouble(Property::calculatePrice)
-                    .average()
-                    .orElse(0);
+            return OffHeapPropertyTable.load(propertyDAO);
         } catch (Exception e) {
-            throw new DatabaseException("Error calculating average price: " + e.getMessage(), e);
+            throw new DatabaseException("Error loading off-heap table: " + e.getMessage(), e);
         }
     }
 
@@ -161,15 +373,101 @@ public class PropertyService {
         }
     }
 
+    /**
+     * Save several prediction results in one batched write
+     */
+    public void savePredictionResults(Collection<PredictionResult> results) throws HousePriceException {
+        if (results.isEmpty()) {
+            return;
+        }
+        try {
+            int saved = predictionDAO.saveAll(results);
+            if (saved != results.size()) {
+                throw new DatabaseException("Saved " + saved + " of " + results.size() + " prediction results");
+            }
+        } catch (HousePriceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DatabaseException("Error saving prediction results: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Persist prediction results off the request path
+     * Results are queued for the background writer when write-behind is enabled,
+     * otherwise they are saved synchronously
+     */
+    public void recordPredictionResults(Collection<PredictionResult> results) throws HousePriceException {
+        PredictionWriteBehind writer = getWriteBehind();
+        if (writer == null) {
+            savePredictionResults(results);
+        } else {
+            writer.enqueue(results);
+        }
+    }
+
+    private synchronized PredictionWriteBehind getWriteBehind() {
+        if (writeBehind == null && AppConfig.getBoolean("prediction.writebehind.enabled", true)) {
+            writeBehind = new PredictionWriteBehind(predictionDAO,
+                    AppConfig.getInt("prediction.writebehind.capacity", 10000),
+                    AppConfig.getInt("prediction.writebehind.batch.size", 500),
+                    AppConfig.getLong("prediction.writebehind.flush.ms", 200),
+                    AppConfig.getLong("prediction.writebehind.offer.timeout.ms", 1000));
+        }
+        return writeBehind;
+    }
+
+    /**
+     * Load the portfolio snapshot and seed the property cache, call once at startup
+     * Falls back to the database when the snapshot is missing, corrupt or older than
+     * snapshot.max.age.seconds, then keeps the file fresh every snapshot.interval.seconds.
+     * Properties are only cached while the snapshot is younger than property.cache.ttl.seconds,
+     * and expire as if they had been loaded when it was written.
+     * @return the loaded snapshot, so callers can warm other caches, or null when snapshots are disabled
+     */
+    public synchronized PortfolioSnapshot warmStart() throws HousePriceException {
+        if (!AppConfig.getBoolean("snapshot.enabled", false)) {
+            return null;
+        }
+        if (snapshotter == null) {
+            snapshotter = new PortfolioSnapshotter(propertyDAO, predictionDAO,
+                    Paths.get(AppConfig.get("snapshot.file", "data/portfolio.snapshot")),
+                    AppConfig.getLong("snapshot.max.age.seconds", 3600) * 1000,
+                    AppConfig.getLong("snapshot.predictions.days", 7) * 24 * 60 * 60 * 1000);
+        }
+        PortfolioSnapshot snapshot = snapshotter.load();
+        // Without a ttl nothing would ever replace a row changed after the snapshot
+        if (propertyCache != null && AppConfig.getLong("property.cache.ttl.seconds", 60) > 0) {
+            long ageMillis = System.currentTimeMillis() - snapshot.getCreatedAtMillis();
+            for (Property property : snapshot.getProperties()) {
+                propertyCache.put(property.getPropertyId(), property, ageMillis);
+            }
+        }
+        snapshotter.start(AppConfig.getLong("snapshot.interval.seconds", 300) * 1000);
+        return snapshot;
+    }
+
+    /**
+     * Flush queued prediction results, call once when the application stops
+     */
+    public synchronized void shutdown() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            snapshotter = null;
+        }
+        if (writeBehind != null) {
+            writeBehind.shutdown(AppConfig.getLong("prediction.writebehind.shutdown.timeout.ms", 30000),
+                    TimeUnit.MILLISECONDS);
+            writeBehind = null;
+        }
+    }
+
     /**
      * Get prediction results for a property
      */
     public List<PredictionResult> getPredictionResults(int propertyId) throws HousePriceException {
         try {
-            List<PredictionResult> allResults = predictionDAO.findAll();
-            return allResults.stream()
-                    .filter(r -> r.getPropertyId() == propertyId)
-                    .collect(Collectors.toList());
+            return predictionDAO.findByPropertyId(propertyId);
         } catch (Exception e) {
             throw new DatabaseException("Error retrieving predictions: " + e.getMessage(), e);
         }
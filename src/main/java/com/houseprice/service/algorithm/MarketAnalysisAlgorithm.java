@@ -0,0 +1,25 @@
+package com.houseprice.service.algorithm;
+
+import com.houseprice.model.Property;
+
+/**
+ * Market Analysis based prediction algorithm
+ */
+public class MarketAnalysisAlgorithm implements PredictionAlgorithm {
+
+    @Override
+    public String getName() {
+        return "MARKET_ANALYSIS";
+    }
+
+    @Override
+    public double getAccuracy() {
+        return 85.7;
+    }
+
+    @Override
+    public double predict(Property property) {
+        double marketMultiplier = 1.15; // Market growth factor
+        return property.calculatePrice() * marketMultiplier;
+    }
+}
@@ -0,0 +1,44 @@
+package com.houseprice.service.algorithm;
+
+import com.houseprice.model.Property;
+
+/**
+ * Service Provider Interface for price prediction algorithms
+ * Implementations are discovered through java.util.ServiceLoader and must
+ * be stateless, since one instance serves every prediction concurrently
+ */
+public interface PredictionAlgorithm {
+    /**
+     * Name recorded on each PredictionResult, e.g. LINEAR_REGRESSION
+     */
+    String getName();
+
+    /**
+     * Expected accuracy of this algorithm in percent
+     */
+    double getAccuracy();
+
+    /**
+     * Predict the price of a property
+     * Unless isDeterministic() says otherwise, the result must depend only on the
+     * property's pricing features, because the engine memoizes it per feature set.
+     */
+    double predict(Property property);
+
+    /**
+     * Cheap algorithms run inline on the calling thread, because a thread hand-off
+     * would cost more than the formula itself. Expensive algorithms are offloaded
+     * to a dedicated pool so they never delay the cheap ones.
+     */
+    default boolean isExpensive() {
+        return false;
+    }
+
+    /**
+     * Algorithms whose output also depends on time, external data or randomness
+     * return false, which turns off the engine's feature memo for them.
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+}
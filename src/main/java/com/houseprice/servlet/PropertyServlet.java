@@ -3,12 +3,16 @@ package com.houseprice.servlet;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.houseprice.dao.Page;
+import com.houseprice.dao.RepositoryFactory;
 import com.houseprice.exception.HousePriceException;
 import com.houseprice.model.CommercialProperty;
 import com.houseprice.model.IndustrialProperty;
@@ -17,6 +21,10 @@ import com.houseprice.model.Property;
 import com.houseprice.model.ResidentialProperty;
 import com.houseprice.service.PricePredictionEngine;
 import com.houseprice.service.PropertyService;
+import com.houseprice.store.PortfolioSnapshot;
+import com.houseprice.util.AppConfig;
+import com.houseprice.util.DatabaseConnection;
+import com.houseprice.util.Logger;
 
 /**
  * Property Servlet - Handles HTTP requests for property operations
@@ -28,7 +36,16 @@ public class PropertyServlet extends HttpServlet {
     @Override
     public void init() throws ServletException {
         propertyService = new PropertyService();
-        predictionEngine = new PricePredictionEngine(4); // 4 thread pool
+        predictionEngine = new PricePredictionEngine(AppConfig.getInt("thread.pool.size", 4));
+        try {
+            PortfolioSnapshot snapshot = propertyService.warmStart();
+            if (snapshot != null) {
+                predictionEngine.primeCache(snapshot.getPredictions());
+            }
+        } catch (HousePriceException e) {
+            // A cold cache is slower, not broken
+            Logger.warn("Warm start failed: " + e.getMessage());
+        }
     }
 
     @Override
@@ -41,7 +58,7 @@ public class PropertyServlet extends HttpServlet {
 
         try {
             if ("list".equals(action)) {
-                listProperties(out);
+                listProperties(request, out);
             } else if ("view".equals(action)) {
                 String propertyId = request.getParameter("id");
                 viewProperty(out, Integer.parseInt(propertyId));
@@ -90,8 +107,11 @@ public class PropertyServlet extends HttpServlet {
         out.println("</body></html>");
     }
 
-    private void listProperties(PrintWriter out) throws HousePriceException {
-        List<Property> properties = propertyService.getAllProperties();
+    private void listProperties(HttpServletRequest request, PrintWriter out) throws HousePriceException {
+        int after = intParameter(request, "after", 0);
+        int limit = intParameter(request, "limit", 0);
+        Page<Property> page = propertyService.getPropertiesPage(after, limit);
+        List<Property> properties = page.getItems();
         
         out.println("<html>");
         out.println("<head><title>All Properties</title></head>");
@@ -112,10 +132,29 @@ public class PropertyServlet extends HttpServlet {
         }
         
         out.println("</table>");
+        if (after > 0) {
+            out.println("<br><a href='?action=list" + (limit > 0 ? "&limit=" + limit : "") + "'>First Page</a>");
+        }
+        if (page.hasMore()) {
+            out.println("<br><a href='?action=list&after=" + page.getLast().getPropertyId()
+                    + (limit > 0 ? "&limit=" + limit : "") + "'>Next Page</a>");
+        }
         out.println("<br><a href='?'>Back to Menu</a>");
         out.println("</body></html>");
     }
 
+    private static int intParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     private void viewProperty(PrintWriter out, int propertyId) throws HousePriceException {
         Property property = propertyService.getPropertyById(propertyId);
         
@@ -168,8 +207,36 @@ public class PropertyServlet extends HttpServlet {
         int propertyId = Integer.parseInt(request.getParameter("propertyId"));
         Property property = propertyService.getPropertyById(propertyId);
 
-        List<PredictionResult> predictions = predictionEngine.predictPrice(property);
+        // Release the container thread while the algorithms run
+        AsyncContext asyncContext = request.startAsync();
+        predictionEngine.predictPriceAsync(property).whenComplete((predictions, error) -> {
+            try {
+                if (error != null) {
+                    out.println("<h2>Error: " + describeFailure(error) + "</h2>");
+                } else {
+                    renderPredictions(out, propertyId, predictions);
+                }
+            } catch (HousePriceException e) {
+                out.println("<h2>Error: " + e.getMessage() + "</h2>");
+            } finally {
+                asyncContext.complete();
+            }
+        });
+    }
+
+    /**
+     * Message for a failed async prediction, worded like predictPrice's exceptions
+     */
+    private static String describeFailure(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return "Prediction timeout";
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
 
+    private void renderPredictions(PrintWriter out, int propertyId, List<PredictionResult> predictions)
+            throws HousePriceException {
         out.println("<html>");
         out.println("<head><title>Price Predictions</title></head>");
         out.println("<body style='font-family: Arial;'>");
@@ -183,8 +250,8 @@ public class PropertyServlet extends HttpServlet {
             out.println("<td>$" + String.format("%.2f", pred.getPredictedPrice()) + "</td>");
             out.println("<td>" + String.format("%.1f%%", pred.getAccuracy()) + "</td>");
             out.println("</tr>");
-            propertyService.savePredictionResult(pred);
         }
+        propertyService.recordPredictionResults(predictions);
 
         out.println("</table>");
         out.println("<br><a href='?action=list'>Back to Properties</a>");
@@ -217,5 +284,8 @@ public class PropertyServlet extends HttpServlet {
     @Override
     public void destroy() {
         predictionEngine.shutdown();
+        propertyService.shutdown();
+        RepositoryFactory.close();
+        DatabaseConnection.getInstance().closeConnection();
     }
 }
@@ -0,0 +1,277 @@
+package com.houseprice.store;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.houseprice.dao.IRepository;
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+
+/**
+ * Structure-of-arrays snapshot of the property portfolio for bulk scoring
+ * Each attribute lives in its own primitive column and rows are grouped into one
+ * contiguous partition per property type, so portfolio-wide aggregation runs as
+ * tight monomorphic loops instead of virtual calculatePrice() calls on heap objects
+ */
+public class ColumnarPropertyStore {
+    public static final byte TYPE_RESIDENTIAL = Property.TYPE_RESIDENTIAL;
+    public static final byte TYPE_COMMERCIAL = Property.TYPE_COMMERCIAL;
+    public static final byte TYPE_INDUSTRIAL = Property.TYPE_INDUSTRIAL;
+    public static final int TYPE_COUNT = 3;
+
+    // Bits of the flags column
+    static final byte FLAG_GARAGE = 1;
+    static final byte FLAG_GARDEN = 2;
+    static final byte FLAG_PARKING = 4;
+    static final byte FLAG_LOADING = 8;
+
+    private final int size;
+    private final int[] propertyId;
+    private final double[] area;
+    private final int[] bedrooms;
+    private final int[] bathrooms;
+    private final int[] yearBuilt;
+    private final byte[] typeCode;
+    private final byte[] flags;
+    // Rent income for commercial rows, load capacity for industrial rows
+    private final double[] amount;
+    // Rows of type t occupy [partitionStart[t], partitionStart[t + 1])
+    private final int[] partitionStart;
+
+    private ColumnarPropertyStore(int size, int[] propertyId, double[] area, int[] bedrooms, int[] bathrooms,
+                                  int[] yearBuilt, byte[] typeCode, byte[] flags, double[] amount,
+                                  int[] partitionStart) {
+        this.size = size;
+        this.propertyId = propertyId;
+        this.area = area;
+        this.bedrooms = bedrooms;
+        this.bathrooms = bathrooms;
+        this.yearBuilt = yearBuilt;
+        this.typeCode = typeCode;
+        this.flags = flags;
+        this.amount = amount;
+        this.partitionStart = partitionStart;
+    }
+
+    /**
+     * Build a store from every property in a repository
+     * Rows are streamed straight into the columns, no intermediate list is built
+     */
+    public static ColumnarPropertyStore load(IRepository<Property> repository) throws Exception {
+        Builder builder = new Builder();
+        repository.forEach(builder::add);
+        return builder.build();
+    }
+
+    public static ColumnarPropertyStore from(List<? extends Property> properties) {
+        Builder builder = new Builder(properties.size());
+        for (Property property : properties) {
+            builder.add(property);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Map a property type name to its type code, unknown types score as residential
+     */
+    public static byte typeCodeOf(String propertyType) {
+        return Property.typeCodeOf(propertyType);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int count(byte type) {
+        return partitionStart[type + 1] - partitionStart[type];
+    }
+
+    /**
+     * Sum of calculated prices over one type partition
+     */
+    public double sumPrices(byte type) {
+        int start = partitionStart[type];
+        int end = partitionStart[type + 1];
+        double sum = 0;
+        switch (type) {
+            case TYPE_RESIDENTIAL:
+                for (int i = start; i < end; i++) {
+                    sum += ResidentialProperty.calculatePrice(area[i], bedrooms[i], yearBuilt[i],
+                            (flags[i] & FLAG_GARAGE) != 0, (flags[i] & FLAG_GARDEN) != 0);
+                }
+                break;
+            case TYPE_COMMERCIAL:
+                for (int i = start; i < end; i++) {
+                    sum += CommercialProperty.calculatePrice(area[i], yearBuilt[i], amount[i],
+                            (flags[i] & FLAG_PARKING) != 0);
+                }
+                break;
+            case TYPE_INDUSTRIAL:
+                for (int i = start; i < end; i++) {
+                    sum += IndustrialProperty.calculatePrice(area[i], yearBuilt[i], amount[i],
+                            (flags[i] & FLAG_LOADING) != 0);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown property type code: " + type);
+        }
+        return sum;
+    }
+
+    public double sumPrices() {
+        double sum = 0;
+        for (byte type = 0; type < TYPE_COUNT; type++) {
+            sum += sumPrices(type);
+        }
+        return sum;
+    }
+
+    public double averagePrice() {
+        return size == 0 ? 0 : sumPrices() / size;
+    }
+
+    public double averagePrice(byte type) {
+        int count = count(type);
+        return count == 0 ? 0 : sumPrices(type) / count;
+    }
+
+    // Row accessors, rows are ordered by type partition
+
+    public int getPropertyId(int row) {
+        return propertyId[row];
+    }
+
+    public double getArea(int row) {
+        return area[row];
+    }
+
+    public int getBedrooms(int row) {
+        return bedrooms[row];
+    }
+
+    public int getBathrooms(int row) {
+        return bathrooms[row];
+    }
+
+    public int getYearBuilt(int row) {
+        return yearBuilt[row];
+    }
+
+    public byte getTypeCode(int row) {
+        return typeCode[row];
+    }
+
+    /**
+     * Accumulates rows in arrival order and partitions them by type on build()
+     */
+    public static class Builder {
+        private int size;
+        private int[] propertyId;
+        private double[] area;
+        private int[] bedrooms;
+        private int[] bathrooms;
+        private int[] yearBuilt;
+        private byte[] typeCode;
+        private byte[] flags;
+        private double[] amount;
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            propertyId = new int[capacity];
+            area = new double[capacity];
+            bedrooms = new int[capacity];
+            bathrooms = new int[capacity];
+            yearBuilt = new int[capacity];
+            typeCode = new byte[capacity];
+            flags = new byte[capacity];
+            amount = new double[capacity];
+        }
+
+        public Builder add(Property property) {
+            if (size == propertyId.length) {
+                grow();
+            }
+            byte type = property.getTypeCode();
+            byte rowFlags = 0;
+            double rowAmount = 0;
+            if (property instanceof ResidentialProperty) {
+                ResidentialProperty residential = (ResidentialProperty) property;
+                rowFlags |= residential.isHasGarage() ? FLAG_GARAGE : 0;
+                rowFlags |= residential.isHasGarden() ? FLAG_GARDEN : 0;
+            } else if (property instanceof CommercialProperty) {
+                CommercialProperty commercial = (CommercialProperty) property;
+                rowFlags |= commercial.isHasParking() ? FLAG_PARKING : 0;
+                rowAmount = commercial.getRentIncome();
+            } else if (property instanceof IndustrialProperty) {
+                IndustrialProperty industrial = (IndustrialProperty) property;
+                rowFlags |= industrial.isHasLoding() ? FLAG_LOADING : 0;
+                rowAmount = industrial.getLoadCapacity();
+            }
+
+            propertyId[size] = property.getPropertyId();
+            area[size] = property.getArea();
+            bedrooms[size] = property.getBedrooms();
+            bathrooms[size] = property.getBathrooms();
+            yearBuilt[size] = property.getYearBuilt();
+            typeCode[size] = type;
+            flags[size] = rowFlags;
+            amount[size] = rowAmount;
+            size++;
+            return this;
+        }
+
+        private void grow() {
+            int capacity = propertyId.length * 2;
+            propertyId = Arrays.copyOf(propertyId, capacity);
+            area = Arrays.copyOf(area, capacity);
+            bedrooms = Arrays.copyOf(bedrooms, capacity);
+            bathrooms = Arrays.copyOf(bathrooms, capacity);
+            yearBuilt = Arrays.copyOf(yearBuilt, capacity);
+            typeCode = Arrays.copyOf(typeCode, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            amount = Arrays.copyOf(amount, capacity);
+        }
+
+        /**
+         * Counting sort of the rows into one contiguous partition per type
+         */
+        public ColumnarPropertyStore build() {
+            int[] partitionStart = new int[TYPE_COUNT + 1];
+            for (int i = 0; i < size; i++) {
+                partitionStart[typeCode[i] + 1]++;
+            }
+            for (int t = 0; t < TYPE_COUNT; t++) {
+                partitionStart[t + 1] += partitionStart[t];
+            }
+
+            int[] cursor = Arrays.copyOf(partitionStart, TYPE_COUNT);
+            int[] sortedId = new int[size];
+            double[] sortedArea = new double[size];
+            int[] sortedBedrooms = new int[size];
+            int[] sortedBathrooms = new int[size];
+            int[] sortedYearBuilt = new int[size];
+            byte[] sortedType = new byte[size];
+            byte[] sortedFlags = new byte[size];
+            double[] sortedAmount = new double[size];
+            for (int i = 0; i < size; i++) {
+                int row = cursor[typeCode[i]]++;
+                sortedId[row] = propertyId[i];
+                sortedArea[row] = area[i];
+                sortedBedrooms[row] = bedrooms[i];
+                sortedBathrooms[row] = bathrooms[i];
+                sortedYearBuilt[row] = yearBuilt[i];
+                sortedType[row] = typeCode[i];
+                sortedFlags[row] = flags[i];
+                sortedAmount[row] = amount[i];
+            }
+            return new ColumnarPropertyStore(size, sortedId, sortedArea, sortedBedrooms, sortedBathrooms,
+                    sortedYearBuilt, sortedType, sortedFlags, sortedAmount, partitionStart);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.houseprice.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.zip.CRC32;
+
+import com.houseprice.util.Logger;
+
+/**
+ * Durable change log for an in-memory repository
+ * Every change is appended to name.log as a length and CRC framed record before
+ * it is applied in memory. snapshot() writes the full state to name.snapshot
+ * through a temporary file and an atomic rename, then starts an empty log, so
+ * recovery reads one snapshot plus the changes made since. Replay stops at the
+ * first torn or corrupt record and truncates the log there. Puts and deletes are
+ * idempotent, so a crash between the rename and the truncate only replays
+ * changes the snapshot already holds. Not thread safe, callers serialize writes.
+ */
+public class EntityLog<T> implements AutoCloseable {
+    private static final int SNAPSHOT_MAGIC = 0x48504C53;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // Larger lengths can only come from a corrupt header
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Binary form of one entity
+     */
+    public interface Codec<T> {
+        void write(DataOutput out, T entity) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Receives the recovered state
+     */
+    public interface Replay<T> {
+        void put(T entity);
+
+        void delete(int id);
+    }
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final Codec<T> codec;
+    private final boolean fsync;
+    private FileChannel log;
+    private long recordsSinceSnapshot;
+
+    /**
+     * @param fsync force every append to disk; off leaves flushing to the OS, which
+     *              survives a process crash but not a power loss
+     */
+    public EntityLog(Path directory, String name, Codec<T> codec, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        this.logFile = directory.resolve(name + ".log");
+        this.snapshotFile = directory.resolve(name + ".snapshot");
+        this.codec = codec;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Feed the snapshot and then the log into the target and open the log for appends
+     */
+    public void replay(Replay<T> target) throws IOException {
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a snapshot file: " + snapshotFile);
+                }
+                long count = in.readLong();
+                for (long i = 0; i < count; i++) {
+                    byte[] payload = readRecord(in);
+                    if (payload == null) {
+                        throw new IOException("Snapshot " + snapshotFile + " is truncated or corrupt");
+                    }
+                    apply(payload, target);
+                }
+            }
+        }
+
+        long validLength = 0;
+        if (Files.exists(logFile)) {
+            try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(logFile));
+                 DataInputStream in = new DataInputStream(counter)) {
+                byte[] payload;
+                while ((payload = readRecord(in)) != null) {
+                    apply(payload, target);
+                    validLength = counter.count;
+                    recordsSinceSnapshot++;
+                }
+            }
+        }
+        log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (log.size() > validLength) {
+            Logger.warn("Truncating " + (log.size() - validLength) + " bytes of incomplete records from " + logFile);
+            log.truncate(validLength);
+        }
+        log.position(validLength);
+    }
+
+    private void apply(byte[] payload, Replay<T> target) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        if (op == PUT) {
+            target.put(codec.read(in));
+        } else if (op == DELETE) {
+            target.delete(in.readInt());
+        } else {
+            throw new IOException("Unknown log operation " + op);
+        }
+    }
+
+    /**
+     * Read one framed record, null at a clean end, a torn tail or a checksum mismatch
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            long crc = in.readInt() & 0xFFFFFFFFL;
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 check = new CRC32();
+            check.update(payload);
+            return check.getValue() == crc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    public void appendPut(T entity) throws IOException {
+        appendPuts(Collections.singletonList(entity));
+    }
+
+    /**
+     * Append several puts with one write
+     */
+    public void appendPuts(Collection<? extends T> entities) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        for (T entity : entities) {
+            writeRecord(out, putPayload(entity));
+        }
+        write(buffer.toByteArray());
+        recordsSinceSnapshot += entities.size();
+    }
+
+    public void appendDelete(int id) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(5);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(DELETE);
+        out.writeInt(id);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        writeRecord(new DataOutputStream(buffer), payload.toByteArray());
+        write(buffer.toByteArray());
+        recordsSinceSnapshot++;
+    }
+
+    private byte[] putPayload(T entity) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(PUT);
+        codec.write(out, entity);
+        return payload.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (log == null) {
+            throw new IOException("Log is not open, call replay() first");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        if (fsync) {
+            log.force(false);
+        }
+    }
+
+    /**
+     * Changes appended since the last snapshot, used to decide when to take the next one
+     */
+    public long getRecordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    /**
+     * Replace the snapshot with the given full state and empty the log
+     */
+    public void snapshot(Collection<? extends T> entities) throws IOException {
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(channel)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(entities.size());
+            for (T entity : entities) {
+                writeRecord(out, putPayload(entity));
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (log != null) {
+            log.truncate(0);
+            log.position(0);
+            if (fsync) {
+                log.force(true);
+            }
+        }
+        recordsSinceSnapshot = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.force(true);
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Tracks how many bytes of the log have been consumed
+     */
+    private static final class CountingInputStream extends BufferedInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,636 @@
+package com.houseprice.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import com.houseprice.dao.IRepository;
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+
+/**
+ * Property rows stored outside the Java heap
+ * Every property is one fixed-width 56 byte record in an off-heap region; the
+ * address, status and zone type live in a StringArena and records hold their
+ * offsets. get() and forEach() hand out flyweight views: subclasses of the usual
+ * property types whose getters read the record in place, so calculatePrice(),
+ * getPricingFeatures() and the prediction engine work on them unchanged. Views
+ * are read-only, change a row through set(). With a directory the table and
+ * arena are memory-mapped files and survive a restart.
+ *
+ * Appends and sets are serialized; reads need no lock and may run concurrently
+ * with writes to other rows.
+ */
+public class OffHeapPropertyTable implements AutoCloseable {
+    static final int RECORD_BYTES = 56;
+
+    // Record layout, little-endian
+    private static final int PROPERTY_ID = 0;
+    private static final int TYPE = 4;
+    private static final int FLAGS = 5;
+    private static final int AREA = 8;
+    private static final int BEDROOMS = 16;
+    private static final int BATHROOMS = 20;
+    private static final int YEAR_BUILT = 24;
+    // Floors for residential rows, max floors for commercial rows
+    private static final int FLOORS = 28;
+    // Rent income for commercial rows, load capacity for industrial rows
+    private static final int AMOUNT = 32;
+    private static final int ADDRESS = 40;
+    private static final int STATUS = 44;
+    private static final int ZONE_TYPE = 48;
+
+    private final OffHeapRegion rows;
+    private final StringArena strings;
+    private volatile int size;
+
+    /**
+     * Table kept in direct buffers for the life of the process
+     */
+    public OffHeapPropertyTable(int expectedRows) throws IOException {
+        this.rows = new OffHeapRegion(null, OffHeapRegion.HEADER_BYTES + expectedRows * RECORD_BYTES);
+        this.strings = new StringArena(null, expectedRows * 32);
+        this.size = 0;
+    }
+
+    /**
+     * Open or create a table backed by properties.table and properties.strings in directory
+     */
+    public OffHeapPropertyTable(Path directory, int expectedRows) throws IOException {
+        Files.createDirectories(directory);
+        this.rows = new OffHeapRegion(directory.resolve("properties.table"),
+                OffHeapRegion.HEADER_BYTES + expectedRows * RECORD_BYTES);
+        this.strings = new StringArena(directory.resolve("properties.strings"), expectedRows * 32);
+        this.size = (int) ((rows.used() - OffHeapRegion.HEADER_BYTES) / RECORD_BYTES);
+    }
+
+    /**
+     * Copy every property of a repository into a new in-memory table
+     */
+    public static OffHeapPropertyTable load(IRepository<Property> repository) throws Exception {
+        OffHeapPropertyTable table = new OffHeapPropertyTable(repository.count());
+        repository.forEach(property -> {
+            try {
+                table.append(property);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error appending to off-heap table: " + e.getMessage(), e);
+            }
+        });
+        return table;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Off-heap bytes in use by records and strings
+     */
+    public long sizeInBytes() {
+        return rows.used() + strings.sizeInBytes();
+    }
+
+    /**
+     * Store a copy of a property and return its row
+     */
+    public synchronized int append(Property property) throws IOException {
+        int offset = rows.allocate(RECORD_BYTES);
+        write(offset, property, false);
+        int row = size;
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Overwrite a row with the state of a property
+     * Fixed-width fields change in place; strings are only appended when they differ.
+     */
+    public synchronized void set(int row, Property property) throws IOException {
+        write(offset(row), property, true);
+    }
+
+    private void write(int offset, Property property, boolean existing) throws IOException {
+        ByteBuffer buffer = rows.buffer();
+        byte type = property.getTypeCode();
+        byte flags = 0;
+        int floors = 0;
+        double amount = 0;
+        String zoneType = null;
+        if (property instanceof ResidentialProperty) {
+            ResidentialProperty residential = (ResidentialProperty) property;
+            flags |= residential.isHasGarage() ? ColumnarPropertyStore.FLAG_GARAGE : 0;
+            flags |= residential.isHasGarden() ? ColumnarPropertyStore.FLAG_GARDEN : 0;
+            floors = residential.getFloors();
+        } else if (property instanceof CommercialProperty) {
+            CommercialProperty commercial = (CommercialProperty) property;
+            flags |= commercial.isHasParking() ? ColumnarPropertyStore.FLAG_PARKING : 0;
+            floors = commercial.getMaxFloors();
+            amount = commercial.getRentIncome();
+        } else if (property instanceof IndustrialProperty) {
+            IndustrialProperty industrial = (IndustrialProperty) property;
+            flags |= industrial.isHasLoding() ? ColumnarPropertyStore.FLAG_LOADING : 0;
+            amount = industrial.getLoadCapacity();
+            zoneType = industrial.getZoneType();
+        }
+
+        buffer.putInt(offset + PROPERTY_ID, property.getPropertyId());
+        buffer.put(offset + TYPE, type);
+        buffer.put(offset + FLAGS, flags);
+        buffer.putDouble(offset + AREA, property.getArea());
+        buffer.putInt(offset + BEDROOMS, property.getBedrooms());
+        buffer.putInt(offset + BATHROOMS, property.getBathrooms());
+        buffer.putInt(offset + YEAR_BUILT, property.getYearBuilt());
+        buffer.putInt(offset + FLOORS, floors);
+        buffer.putDouble(offset + AMOUNT, amount);
+        writeString(buffer, offset + ADDRESS, property.getAddress(), existing);
+        writeString(buffer, offset + STATUS, property.getStatus(), existing);
+        writeString(buffer, offset + ZONE_TYPE, zoneType, existing);
+    }
+
+    private void writeString(ByteBuffer buffer, int position, String value, boolean existing) throws IOException {
+        if (existing && equal(strings.get(buffer.getInt(position)), value)) {
+            return;
+        }
+        buffer.putInt(position, strings.add(value));
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private int offset(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return OffHeapRegion.HEADER_BYTES + row * RECORD_BYTES;
+    }
+
+    /**
+     * A new view of one row, safe to keep or pass to another thread
+     */
+    public Property get(int row) {
+        int offset = offset(row);
+        switch (rows.buffer().get(offset + TYPE)) {
+            case ColumnarPropertyStore.TYPE_COMMERCIAL:
+                return new CommercialView(this, offset);
+            case ColumnarPropertyStore.TYPE_INDUSTRIAL:
+                return new IndustrialView(this, offset);
+            default:
+                return new ResidentialView(this, offset);
+        }
+    }
+
+    /**
+     * A heap copy of one row, independent of the table
+     */
+    public Property copy(int row) {
+        Property view = get(row);
+        Property copy;
+        if (view instanceof CommercialProperty) {
+            CommercialProperty commercial = (CommercialProperty) view;
+            copy = new CommercialProperty(view.getAddress(), view.getArea(), view.getBedrooms(),
+                    view.getBathrooms(), view.getYearBuilt(), commercial.getRentIncome(),
+                    commercial.isHasParking(), commercial.getMaxFloors());
+        } else if (view instanceof IndustrialProperty) {
+            IndustrialProperty industrial = (IndustrialProperty) view;
+            copy = new IndustrialProperty(view.getAddress(), view.getArea(), view.getBedrooms(),
+                    view.getBathrooms(), view.getYearBuilt(), industrial.getLoadCapacity(),
+                    industrial.isHasLoding(), industrial.getZoneType());
+        } else {
+            ResidentialProperty residential = (ResidentialProperty) view;
+            copy = new ResidentialProperty(view.getAddress(), view.getArea(), view.getBedrooms(),
+                    view.getBathrooms(), view.getYearBuilt(), residential.getFloors(),
+                    residential.isHasGarage(), residential.isHasGarden());
+        }
+        copy.setPropertyId(view.getPropertyId());
+        copy.setStatus(view.getStatus());
+        return copy;
+    }
+
+    /**
+     * Visit every row in order
+     * One flyweight per type is repositioned for each row, so the visitor must not
+     * keep the instance it is handed; use get() or copy() for that.
+     */
+    public void forEach(Consumer<? super Property> visitor) {
+        ResidentialView residential = new ResidentialView(this, 0);
+        CommercialView commercial = new CommercialView(this, 0);
+        IndustrialView industrial = new IndustrialView(this, 0);
+        ByteBuffer buffer = rows.buffer();
+        int count = size;
+        for (int row = 0; row < count; row++) {
+            int offset = OffHeapRegion.HEADER_BYTES + row * RECORD_BYTES;
+            switch (buffer.get(offset + TYPE)) {
+                case ColumnarPropertyStore.TYPE_COMMERCIAL:
+                    commercial.offset = offset;
+                    visitor.accept(commercial);
+                    break;
+                case ColumnarPropertyStore.TYPE_INDUSTRIAL:
+                    industrial.offset = offset;
+                    visitor.accept(industrial);
+                    break;
+                default:
+                    residential.offset = offset;
+                    visitor.accept(residential);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Sum of calculatePrice() over every row, computed through the views
+     */
+    public double sumPrices() {
+        double[] sum = new double[1];
+        forEach(property -> sum[0] += property.calculatePrice());
+        return sum[0];
+    }
+
+    /**
+     * Flush a file-backed table to disk
+     */
+    public synchronized void force() {
+        rows.force();
+        strings.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            rows.close();
+        } finally {
+            strings.close();
+        }
+    }
+
+    // Field readers shared by the views; the buffer is re-read so views follow a grown region
+
+    int readInt(int offset, int field) {
+        return rows.buffer().getInt(offset + field);
+    }
+
+    double readDouble(int offset, int field) {
+        return rows.buffer().getDouble(offset + field);
+    }
+
+    boolean readFlag(int offset, byte flag) {
+        return (rows.buffer().get(offset + FLAGS) & flag) != 0;
+    }
+
+    String readString(int offset, int field) {
+        return strings.get(rows.buffer().getInt(offset + field));
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Off-heap property views are read-only, use OffHeapPropertyTable.set");
+    }
+
+    private static final class ResidentialView extends ResidentialProperty {
+        private static final long serialVersionUID = 1L;
+        private final transient OffHeapPropertyTable table;
+        private transient int offset;
+
+        ResidentialView(OffHeapPropertyTable table, int offset) {
+            this.table = table;
+            this.offset = offset;
+        }
+
+        @Override
+        public int getPropertyId() {
+            return table.readInt(offset, PROPERTY_ID);
+        }
+
+        @Override
+        public String getAddress() {
+            return table.readString(offset, ADDRESS);
+        }
+
+        @Override
+        public double getArea() {
+            return table.readDouble(offset, AREA);
+        }
+
+        @Override
+        public int getBedrooms() {
+            return table.readInt(offset, BEDROOMS);
+        }
+
+        @Override
+        public int getBathrooms() {
+            return table.readInt(offset, BATHROOMS);
+        }
+
+        @Override
+        public int getYearBuilt() {
+            return table.readInt(offset, YEAR_BUILT);
+        }
+
+        @Override
+        public String getStatus() {
+            return table.readString(offset, STATUS);
+        }
+
+        @Override
+        public int getFloors() {
+            return table.readInt(offset, FLOORS);
+        }
+
+        @Override
+        public boolean isHasGarage() {
+            return table.readFlag(offset, ColumnarPropertyStore.FLAG_GARAGE);
+        }
+
+        @Override
+        public boolean isHasGarden() {
+            return table.readFlag(offset, ColumnarPropertyStore.FLAG_GARDEN);
+        }
+
+        @Override
+        public void setPropertyId(int propertyId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAddress(String address) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setArea(double area) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBedrooms(int bedrooms) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBathrooms(int bathrooms) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setYearBuilt(int yearBuilt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStatus(String status) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setFloors(int floors) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHasGarage(boolean hasGarage) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHasGarden(boolean hasGarden) {
+            throw readOnly();
+        }
+
+        private Object writeReplace() {
+            return table.copy((offset - OffHeapRegion.HEADER_BYTES) / RECORD_BYTES);
+        }
+    }
+
+    private static final class CommercialView extends CommercialProperty {
+        private static final long serialVersionUID = 1L;
+        private final transient OffHeapPropertyTable table;
+        private transient int offset;
+
+        CommercialView(OffHeapPropertyTable table, int offset) {
+            this.table = table;
+            this.offset = offset;
+        }
+
+        @Override
+        public int getPropertyId() {
+            return table.readInt(offset, PROPERTY_ID);
+        }
+
+        @Override
+        public String getAddress() {
+            return table.readString(offset, ADDRESS);
+        }
+
+        @Override
+        public double getArea() {
+            return table.readDouble(offset, AREA);
+        }
+
+        @Override
+        public int getBedrooms() {
+            return table.readInt(offset, BEDROOMS);
+        }
+
+        @Override
+        public int getBathrooms() {
+            return table.readInt(offset, BATHROOMS);
+        }
+
+        @Override
+        public int getYearBuilt() {
+            return table.readInt(offset, YEAR_BUILT);
+        }
+
+        @Override
+        public String getStatus() {
+            return table.readString(offset, STATUS);
+        }
+
+        @Override
+        public double getRentIncome() {
+            return table.readDouble(offset, AMOUNT);
+        }
+
+        @Override
+        public boolean isHasParking() {
+            return table.readFlag(offset, ColumnarPropertyStore.FLAG_PARKING);
+        }
+
+        @Override
+        public int getMaxFloors() {
+            return table.readInt(offset, FLOORS);
+        }
+
+        @Override
+        public void setPropertyId(int propertyId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAddress(String address) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setArea(double area) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBedrooms(int bedrooms) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBathrooms(int bathrooms) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setYearBuilt(int yearBuilt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStatus(String status) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setRentIncome(double rentIncome) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHasParking(boolean hasParking) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setMaxFloors(int maxFloors) {
+            throw readOnly();
+        }
+
+        private Object writeReplace() {
+            return table.copy((offset - OffHeapRegion.HEADER_BYTES) / RECORD_BYTES);
+        }
+    }
+
+    private static final class IndustrialView extends IndustrialProperty {
+        private static final long serialVersionUID = 1L;
+        private final transient OffHeapPropertyTable table;
+        private transient int offset;
+
+        IndustrialView(OffHeapPropertyTable table, int offset) {
+            this.table = table;
+            this.offset = offset;
+        }
+
+        @Override
+        public int getPropertyId() {
+            return table.readInt(offset, PROPERTY_ID);
+        }
+
+        @Override
+        public String getAddress() {
+            return table.readString(offset, ADDRESS);
+        }
+
+        @Override
+        public double getArea() {
+            return table.readDouble(offset, AREA);
+        }
+
+        @Override
+        public int getBedrooms() {
+            return table.readInt(offset, BEDROOMS);
+        }
+
+        @Override
+        public int getBathrooms() {
+            return table.readInt(offset, BATHROOMS);
+        }
+
+        @Override
+        public int getYearBuilt() {
+            return table.readInt(offset, YEAR_BUILT);
+        }
+
+        @Override
+        public String getStatus() {
+            return table.readString(offset, STATUS);
+        }
+
+        @Override
+        public double getLoadCapacity() {
+            return table.readDouble(offset, AMOUNT);
+        }
+
+        @Override
+        public boolean isHasLoding() {
+            return table.readFlag(offset, ColumnarPropertyStore.FLAG_LOADING);
+        }
+
+        @Override
+        public String getZoneType() {
+            return table.readString(offset, ZONE_TYPE);
+        }
+
+        @Override
+        public void setPropertyId(int propertyId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAddress(String address) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setArea(double area) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBedrooms(int bedrooms) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBathrooms(int bathrooms) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setYearBuilt(int yearBuilt) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setStatus(String status) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLoadCapacity(double loadCapacity) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setHasLoding(boolean hasLoding) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setZoneType(String zoneType) {
+            throw readOnly();
+        }
+
+        private Object writeReplace() {
+            return table.copy((offset - OffHeapRegion.HEADER_BYTES) / RECORD_BYTES);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.houseprice.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Growable block of memory outside the Java heap
+ * Backed by a memory-mapped file when a path is given, otherwise by a direct
+ * buffer. The first 8 bytes hold the number of bytes in use, so a file-backed
+ * region reopens with its contents. Growing maps a larger copy; buffers handed
+ * out earlier stay readable for the bytes they already covered. A region is
+ * limited to 2 GB, the reach of a ByteBuffer index. Not thread-safe for writes.
+ */
+final class OffHeapRegion implements AutoCloseable {
+    static final int HEADER_BYTES = 8;
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    private final FileChannel channel;
+    private volatile ByteBuffer buffer;
+    private long used;
+
+    OffHeapRegion(Path file, int initialCapacity) throws IOException {
+        int capacity = Math.max(initialCapacity, MIN_CAPACITY);
+        if (file == null) {
+            this.channel = null;
+            this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            this.used = HEADER_BYTES;
+            return;
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long existing = channel.size();
+        if (existing > Integer.MAX_VALUE) {
+            throw new IOException("Off-heap region " + file + " is larger than 2 GB");
+        }
+        this.buffer = map(Math.max(capacity, existing));
+        if (existing == 0) {
+            this.used = HEADER_BYTES;
+            buffer.putLong(0, used);
+            return;
+        }
+        this.used = existing >= HEADER_BYTES ? buffer.getLong(0) : -1;
+        if (used < HEADER_BYTES || used > existing) {
+            throw new IOException("Corrupt off-heap region " + file + ": " + used + " bytes in use of " + existing);
+        }
+    }
+
+    private ByteBuffer map(long capacity) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Current buffer, read with absolute gets only
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Bytes in use, including the header
+     */
+    long used() {
+        return used;
+    }
+
+    /**
+     * Reserve length bytes at the end of the region and return their offset
+     */
+    int allocate(int length) throws IOException {
+        long end = used + length;
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Off-heap region is full");
+        }
+        ensureCapacity((int) end);
+        int offset = (int) used;
+        used = end;
+        buffer.putLong(0, used);
+        return offset;
+    }
+
+    private void ensureCapacity(int required) throws IOException {
+        ByteBuffer current = buffer;
+        if (required <= current.capacity()) {
+            return;
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max((long) current.capacity() * 2, required));
+        if (channel != null) {
+            // Mapping a larger range extends the file, the old mapping shares the same pages
+            buffer = map(capacity);
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer source = current.duplicate();
+        source.clear();
+        grown.put(source);
+        buffer = grown;
+    }
+
+    /**
+     * Flush a file-backed region to disk
+     */
+    void force() {
+        ByteBuffer current = buffer;
+        if (current instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) current).force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+}
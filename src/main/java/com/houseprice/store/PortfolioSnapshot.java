@@ -0,0 +1,296 @@
+package com.houseprice.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+
+/**
+ * Point-in-time copy of the portfolio: every property plus recent predictions
+ * Stored in a versioned binary file so a restarting node can load it through a
+ * memory-mapped channel instead of materializing the tables over JDBC.
+ *
+ * Layout, big-endian: a 40 byte header (magic, version, creation time in epoch
+ * millis, property count, prediction count, body length, CRC32 of the body) then
+ * the property records followed by the prediction records. Strings are an int
+ * byte length, -1 for null, and UTF-8 bytes. Files are written to a temporary
+ * sibling and renamed into place, so readers never see a partial snapshot.
+ */
+public class PortfolioSnapshot {
+    private static final int MAGIC = 0x48505053;
+    public static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+
+    private static final byte RESIDENTIAL = 0;
+    private static final byte COMMERCIAL = 1;
+    private static final byte INDUSTRIAL = 2;
+
+    private final long createdAtMillis;
+    private final List<Property> properties;
+    private final List<PredictionResult> predictions;
+
+    public PortfolioSnapshot(long createdAtMillis, List<Property> properties, List<PredictionResult> predictions) {
+        this.createdAtMillis = createdAtMillis;
+        this.properties = Collections.unmodifiableList(properties);
+        this.predictions = Collections.unmodifiableList(predictions);
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    public List<PredictionResult> getPredictions() {
+        return predictions;
+    }
+
+    /**
+     * Whether the snapshot is older than maxAgeMillis at the given time
+     */
+    public boolean isOlderThan(long maxAgeMillis, long nowMillis) {
+        return nowMillis - createdAtMillis > maxAgeMillis;
+    }
+
+    /**
+     * Write this snapshot to file, replacing any previous one atomically
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Body first, checksummed on the way out; the header is filled in once its length is known
+            channel.position(HEADER_BYTES);
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            for (Property property : properties) {
+                writeProperty(out, property);
+            }
+            for (PredictionResult prediction : predictions) {
+                writePrediction(out, prediction);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(createdAtMillis);
+            header.putInt(properties.size());
+            header.putInt(predictions.size());
+            header.putLong(out.size());
+            header.putInt((int) checked.getChecksum().getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map a snapshot file and decode it
+     * @throws IOException if the file is missing, from another version, truncated or fails its checksum
+     */
+    public static PortfolioSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Snapshot " + file + " is too short");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a portfolio snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            long createdAt = buffer.getLong();
+            int propertyCount = buffer.getInt();
+            int predictionCount = buffer.getInt();
+            long bodyLength = buffer.getLong();
+            int expectedCrc = buffer.getInt();
+            if (bodyLength != size - HEADER_BYTES) {
+                throw new IOException("Snapshot " + file + " is truncated");
+            }
+
+            ByteBuffer body = buffer.position(HEADER_BYTES).slice();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Snapshot " + file + " failed its checksum");
+            }
+
+            try {
+                List<Property> properties = new ArrayList<>(propertyCount);
+                for (int i = 0; i < propertyCount; i++) {
+                    properties.add(readProperty(body));
+                }
+                List<PredictionResult> predictions = new ArrayList<>(predictionCount);
+                for (int i = 0; i < predictionCount; i++) {
+                    predictions.add(readPrediction(body));
+                }
+                return new PortfolioSnapshot(createdAt, properties, predictions);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Snapshot " + file + " has fewer records than its header says", e);
+            }
+        }
+    }
+
+    private static void writeProperty(DataOutputStream out, Property property) throws IOException {
+        if (property instanceof CommercialProperty) {
+            out.writeByte(COMMERCIAL);
+        } else if (property instanceof IndustrialProperty) {
+            out.writeByte(INDUSTRIAL);
+        } else {
+            out.writeByte(RESIDENTIAL);
+        }
+        out.writeInt(property.getPropertyId());
+        writeString(out, property.getAddress());
+        out.writeDouble(property.getArea());
+        out.writeInt(property.getBedrooms());
+        out.writeInt(property.getBathrooms());
+        out.writeInt(property.getYearBuilt());
+        writeString(out, property.getStatus());
+        if (property instanceof CommercialProperty) {
+            CommercialProperty commercial = (CommercialProperty) property;
+            out.writeDouble(commercial.getRentIncome());
+            out.writeBoolean(commercial.isHasParking());
+            out.writeInt(commercial.getMaxFloors());
+        } else if (property instanceof IndustrialProperty) {
+            IndustrialProperty industrial = (IndustrialProperty) property;
+            out.writeDouble(industrial.getLoadCapacity());
+            out.writeBoolean(industrial.isHasLoding());
+            writeString(out, industrial.getZoneType());
+        } else {
+            ResidentialProperty residential = (ResidentialProperty) property;
+            out.writeInt(residential.getFloors());
+            out.writeBoolean(residential.isHasGarage());
+            out.writeBoolean(residential.isHasGarden());
+        }
+    }
+
+    private static Property readProperty(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        Property property;
+        switch (type) {
+            case COMMERCIAL:
+                property = new CommercialProperty();
+                break;
+            case INDUSTRIAL:
+                property = new IndustrialProperty();
+                break;
+            case RESIDENTIAL:
+                property = new ResidentialProperty();
+                break;
+            default:
+                throw new IOException("Unknown property type code " + type);
+        }
+        property.setPropertyId(in.getInt());
+        property.setAddress(readString(in));
+        property.setArea(in.getDouble());
+        property.setBedrooms(in.getInt());
+        property.setBathrooms(in.getInt());
+        property.setYearBuilt(in.getInt());
+        property.setStatus(readString(in));
+        if (type == COMMERCIAL) {
+            CommercialProperty commercial = (CommercialProperty) property;
+            commercial.setRentIncome(in.getDouble());
+            commercial.setHasParking(in.get() != 0);
+            commercial.setMaxFloors(in.getInt());
+        } else if (type == INDUSTRIAL) {
+            IndustrialProperty industrial = (IndustrialProperty) property;
+            industrial.setLoadCapacity(in.getDouble());
+            industrial.setHasLoding(in.get() != 0);
+            industrial.setZoneType(readString(in));
+        } else {
+            ResidentialProperty residential = (ResidentialProperty) property;
+            residential.setFloors(in.getInt());
+            residential.setHasGarage(in.get() != 0);
+            residential.setHasGarden(in.get() != 0);
+        }
+        return property;
+    }
+
+    private static void writePrediction(DataOutputStream out, PredictionResult prediction) throws IOException {
+        out.writeInt(prediction.getPredictionId());
+        out.writeInt(prediction.getPropertyId());
+        out.writeDouble(prediction.getPredictedPrice());
+        out.writeDouble(prediction.getActualPrice());
+        out.writeDouble(prediction.getAccuracy());
+        writeString(out, prediction.getAlgorithm());
+        writeString(out, prediction.getStatus());
+        LocalDateTime date = prediction.getPredictionDate();
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(date.getNano());
+        }
+    }
+
+    private static PredictionResult readPrediction(ByteBuffer in) {
+        PredictionResult prediction = new PredictionResult();
+        prediction.setPredictionId(in.getInt());
+        prediction.setPropertyId(in.getInt());
+        prediction.setPredictedPrice(in.getDouble());
+        prediction.setActualPrice(in.getDouble());
+        prediction.setAccuracy(in.getDouble());
+        prediction.setAlgorithm(readString(in));
+        prediction.setStatus(readString(in));
+        if (in.get() != 0) {
+            long seconds = in.getLong();
+            prediction.setPredictionDate(LocalDateTime.ofEpochSecond(seconds, in.getInt(), ZoneOffset.UTC));
+        }
+        return prediction;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
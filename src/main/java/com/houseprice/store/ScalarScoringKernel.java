@@ -0,0 +1,90 @@
+package com.houseprice.store;
+
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.service.algorithm.PropertyFeaturesAlgorithm;
+
+/**
+ * Reference scoring backend
+ * Delegates to the same formulas the model and algorithm classes use, one row at a time
+ */
+public class ScalarScoringKernel implements ScoringKernel {
+
+    @Override
+    public void residentialPrices(double[] area, double[] bedrooms, double[] yearBuilt,
+                                  double[] hasGarage, double[] hasGarden, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = residential(area[i], bedrooms[i], yearBuilt[i], hasGarage[i], hasGarden[i]);
+        }
+    }
+
+    @Override
+    public void commercialPrices(double[] area, double[] yearBuilt, double[] rentIncome,
+                                 double[] hasParking, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = commercial(area[i], yearBuilt[i], rentIncome[i], hasParking[i]);
+        }
+    }
+
+    @Override
+    public void industrialPrices(double[] area, double[] yearBuilt, double[] loadCapacity,
+                                 double[] hasLoding, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = industrial(area[i], yearBuilt[i], loadCapacity[i], hasLoding[i]);
+        }
+    }
+
+    @Override
+    public void featurePrices(double[] area, double[] bedrooms, double[] bathrooms, double[] yearBuilt,
+                              double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = features(area[i], bedrooms[i], bathrooms[i], yearBuilt[i]);
+        }
+    }
+
+    @Override
+    public void scale(double[] prices, double factor, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = prices[i] * factor;
+        }
+    }
+
+    @Override
+    public void linear(double[] x, double a, double[] y, double b, double c, double[] out, int length) {
+        for (int i = 0; i < length; i++) {
+            out[i] = linear(x[i], a, y[i], b, c);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    // Single-row forms, also used by other backends for loop tails
+
+    static double residential(double area, double bedrooms, double yearBuilt, double hasGarage, double hasGarden) {
+        return ResidentialProperty.calculatePrice(area, (int) bedrooms, (int) yearBuilt,
+                hasGarage != 0, hasGarden != 0);
+    }
+
+    static double commercial(double area, double yearBuilt, double rentIncome, double hasParking) {
+        return CommercialProperty.calculatePrice(area, (int) yearBuilt, rentIncome, hasParking != 0);
+    }
+
+    static double industrial(double area, double yearBuilt, double loadCapacity, double hasLoding) {
+        return IndustrialProperty.calculatePrice(area, (int) yearBuilt, loadCapacity, hasLoding != 0);
+    }
+
+    static double features(double area, double bedrooms, double bathrooms, double yearBuilt) {
+        return PropertyFeaturesAlgorithm.estimate(area, (int) bedrooms, (int) bathrooms, (int) yearBuilt);
+    }
+
+    /**
+     * Single-row form of {@link #linear(double[], double, double[], double, double, double[], int)}
+     */
+    public static double linear(double x, double a, double y, double b, double c) {
+        return (x * a + c) + y * b;
+    }
+}
@@ -0,0 +1,49 @@
+package com.houseprice.store;
+
+/**
+ * Bulk pricing formulas over primitive arrays
+ * Every formula is a short linear combination of numeric fields followed by a clamp,
+ * which maps directly onto SIMD lanes. Boolean features are passed as 0 or 1.
+ * All implementations must produce results bit-identical to ScalarScoringKernel.
+ */
+public interface ScoringKernel {
+
+    /**
+     * ResidentialProperty.calculatePrice for each row
+     */
+    void residentialPrices(double[] area, double[] bedrooms, double[] yearBuilt,
+                           double[] hasGarage, double[] hasGarden, double[] out, int length);
+
+    /**
+     * CommercialProperty.calculatePrice for each row
+     */
+    void commercialPrices(double[] area, double[] yearBuilt, double[] rentIncome,
+                          double[] hasParking, double[] out, int length);
+
+    /**
+     * IndustrialProperty.calculatePrice for each row
+     */
+    void industrialPrices(double[] area, double[] yearBuilt, double[] loadCapacity,
+                          double[] hasLoding, double[] out, int length);
+
+    /**
+     * PROPERTY_FEATURES prediction for each row
+     */
+    void featurePrices(double[] area, double[] bedrooms, double[] bathrooms, double[] yearBuilt,
+                       double[] out, int length);
+
+    /**
+     * out = prices * factor, as used by the LINEAR_REGRESSION and MARKET_ANALYSIS predictions
+     */
+    void scale(double[] prices, double factor, double[] out, int length);
+
+    /**
+     * out = (x * a + c) + y * b, the shape of the web quote formulas
+     */
+    void linear(double[] x, double a, double[] y, double b, double c, double[] out, int length);
+
+    /**
+     * Name of the backend, e.g. scalar or vector
+     */
+    String getName();
+}
@@ -0,0 +1,47 @@
+package com.houseprice.store;
+
+import com.houseprice.util.AppConfig;
+import com.houseprice.util.Logger;
+
+/**
+ * Selects the scoring backend named by the scoring.backend setting
+ *   vector - SIMD kernels from jdk.incubator.vector, when compiled in (-Pvector) and the
+ *            JVM runs with --add-modules jdk.incubator.vector; otherwise scalar
+ *   scalar - plain loops
+ *   auto   - vector when available, otherwise scalar
+ */
+public class ScoringKernels {
+    private static final String VECTOR_KERNEL_CLASS = "com.houseprice.store.VectorScoringKernel";
+    private static final ScoringKernel INSTANCE = create(AppConfig.get("scoring.backend", "auto"));
+
+    private ScoringKernels() {
+    }
+
+    public static ScoringKernel get() {
+        return INSTANCE;
+    }
+
+    static ScoringKernel create(String backend) {
+        if (!"scalar".equalsIgnoreCase(backend)) {
+            ScoringKernel vector = loadVectorKernel();
+            if (vector != null) {
+                return vector;
+            }
+            if ("vector".equalsIgnoreCase(backend)) {
+                Logger.warn("Vector scoring backend unavailable, using scalar kernels");
+            }
+        }
+        return new ScalarScoringKernel();
+    }
+
+    /**
+     * Get the SIMD backend, or null when it was not compiled in or the incubator module is missing
+     */
+    public static ScoringKernel loadVectorKernel() {
+        try {
+            return (ScoringKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.houseprice.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Append-only off-heap storage for strings
+ * Each string is stored once as an int byte length followed by its UTF-8 bytes
+ * and is referenced by its offset. Records keep those offsets instead of String
+ * objects; get() decodes a fresh String on every call. Strings are never freed,
+ * replacing one appends a new copy.
+ */
+public class StringArena implements AutoCloseable {
+    /**
+     * Reference stored for a null string
+     */
+    public static final int NULL = -1;
+
+    private final OffHeapRegion region;
+
+    /**
+     * @param file backing file, null to keep the arena in a direct buffer
+     */
+    public StringArena(Path file, int initialCapacity) throws IOException {
+        this.region = new OffHeapRegion(file, initialCapacity);
+    }
+
+    /**
+     * Store a string and return its reference
+     */
+    public int add(String value) throws IOException {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int offset = region.allocate(Integer.BYTES + bytes.length);
+        ByteBuffer buffer = region.buffer();
+        buffer.putInt(offset, bytes.length);
+        // Relative bulk copy on a duplicate, the shared buffer's position is never moved
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset + Integer.BYTES);
+        target.put(bytes);
+        return offset;
+    }
+
+    /**
+     * Decode the string at a reference returned by add()
+     */
+    public String get(int reference) {
+        if (reference == NULL) {
+            return null;
+        }
+        ByteBuffer buffer = region.buffer();
+        byte[] bytes = new byte[buffer.getInt(reference)];
+        ByteBuffer source = buffer.duplicate();
+        source.position(reference + Integer.BYTES);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bytes in use, including the region header
+     */
+    public long sizeInBytes() {
+        return region.used();
+    }
+
+    void force() {
+        region.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        region.close();
+    }
+}
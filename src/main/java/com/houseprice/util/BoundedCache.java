@@ -0,0 +1,261 @@
+package com.houseprice.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Size and TTL bounded LRU cache
+ * Keys are spread over independently locked segments so readers of
+ * different keys do not contend on a single monitor
+ */
+public class BoundedCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize maximum number of entries, must be positive
+     * @param ttlMillis time to live of an entry after it is written, 0 or less for no expiry
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maxSize / 8) {
+            segmentCount *= 2;
+        }
+        int perSegment = (maxSize + segmentCount - 1) / segmentCount;
+
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] created = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        this.segments = created;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1_000_000L : 0;
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * Get a value, or null if absent or expired
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.map.get(key);
+            if (entry != null && isExpired(entry, System.nanoTime())) {
+                segment.map.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.map.put(key, new Entry<>(value, expiryFromNow()));
+            evictOverflow(segment);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Store a value read ageMillis ago, expiring when it would have had it been cached then
+     * @return false, storing nothing, when its time to live has already passed
+     */
+    public boolean put(K key, V value, long ageMillis) {
+        long ageNanos = Math.max(ageMillis, 0) * 1_000_000L;
+        if (ttlNanos > 0 && ageNanos >= ttlNanos) {
+            return false;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.map.put(key, new Entry<>(value, ttlNanos > 0 ? System.nanoTime() + ttlNanos - ageNanos : 0));
+            evictOverflow(segment);
+        } finally {
+            segment.lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Atomically replace the value for a key; the function receives null when the key
+     * is absent or expired, and returning null removes the entry
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.map.get(key);
+            V current = entry != null && !isExpired(entry, System.nanoTime()) ? entry.value : null;
+            V updated = remapping.apply(key, current);
+            if (updated == null) {
+                segment.map.remove(key);
+            } else {
+                segment.map.put(key, new Entry<>(updated, expiryFromNow()));
+                evictOverflow(segment);
+            }
+            return updated;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            segment.map.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.map.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    private long expiryFromNow() {
+        return ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return entry.expiresAt != 0 && now - entry.expiresAt >= 0;
+    }
+
+    /**
+     * Drop expired entries from the cold end, then least recently used ones until within capacity
+     */
+    private void evictOverflow(Segment<K, V> segment) {
+        long now = System.nanoTime();
+        Iterator<Entry<V>> it = segment.map.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> eldest = it.next();
+            if (segment.map.size() <= segment.capacity && !isExpired(eldest, now)) {
+                break;
+            }
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        final int capacity;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Point-in-time cache counters
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final int size;
+
+        Stats(long hitCount, long missCount, long evictionCount, int size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hits=" + hitCount +
+                    ", misses=" + missCount +
+                    ", evictions=" + evictionCount +
+                    ", size=" + size +
+                    ", hitRate=" + String.format("%.2f", getHitRate()) +
+                    '}';
+        }
+    }
+}
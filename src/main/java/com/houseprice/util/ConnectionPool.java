@@ -0,0 +1,612 @@
+package com.houseprice.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool
+ * Borrowed connections are proxies whose close() hands the physical connection
+ * back to the pool, so DAOs keep using try-with-resources unchanged.
+ * Idle connections are reused most-recently-used first, validated after sitting
+ * idle, retired after their max lifetime and trimmed back to the minimum size
+ * by a background maintenance task. Each physical connection keeps an LRU cache
+ * of its prepared statements, so repeated DAO queries skip re-preparation.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection
+     */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // Most recently returned connection first
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService maintenance;
+    // Physical connections that are idle, borrowed or being opened
+    private int total;
+    private boolean closed;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        if (settings.maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.factory = factory;
+        this.settings = settings;
+
+        for (int i = 0; i < Math.min(settings.initialSize, settings.maxSize); i++) {
+            if (!addIdleConnection()) {
+                break;
+            }
+        }
+
+        if (settings.maintenanceIntervalMillis > 0) {
+            this.maintenance = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "db-pool-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            maintenance.scheduleWithFixedDelay(this::maintain, settings.maintenanceIntervalMillis,
+                    settings.maintenanceIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.maintenance = null;
+        }
+    }
+
+    /**
+     * Borrow a connection, waiting up to the acquire timeout for one to be returned
+     * @throws SQLTransientConnectionException if the pool stays exhausted for the whole timeout
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.acquireTimeoutMillis);
+
+        while (true) {
+            PooledConnection candidate = null;
+            lock.lock();
+            try {
+                while (candidate == null && total >= settings.maxSize) {
+                    checkOpen();
+                    candidate = idle.pollFirst();
+                    if (candidate == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            timeoutCount.increment();
+                            throw new SQLTransientConnectionException("Timed out after " + settings.acquireTimeoutMillis
+                                    + " ms waiting for a database connection, pool size " + settings.maxSize);
+                        }
+                        available.awaitNanos(remaining);
+                    }
+                }
+                checkOpen();
+                if (candidate == null) {
+                    candidate = idle.pollFirst();
+                }
+                if (candidate == null) {
+                    // Reserve the slot now, open the connection outside the lock
+                    total++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (candidate == null) {
+                candidate = open();
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+
+            long waited = System.nanoTime() - start;
+            acquireCount.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+            return candidate.lease();
+        }
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    /**
+     * Open a physical connection for a slot already counted in total
+     */
+    private PooledConnection open() throws SQLException {
+        try {
+            PooledConnection connection = new PooledConnection(factory.create());
+            createdCount.increment();
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            releaseSlot();
+            throw e;
+        }
+    }
+
+    private boolean addIdleConnection() {
+        lock.lock();
+        try {
+            if (closed || total >= settings.maxSize) {
+                return false;
+            }
+            total++;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            PooledConnection connection = open();
+            lock.lock();
+            try {
+                idle.addLast(connection);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        } catch (SQLException e) {
+            Logger.warn("Could not open pooled connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        long now = System.nanoTime();
+        if (connection.isExpired(now, settings.maxLifetimeMillis)) {
+            return false;
+        }
+        if (now - connection.lastUsedAt < TimeUnit.MILLISECONDS.toNanos(settings.validationIntervalMillis)) {
+            return true;
+        }
+        try {
+            return connection.physical.isValid(settings.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called by the proxy on close(): reset the connection and put it back on the idle stack
+     */
+    private void release(PooledConnection connection) {
+        boolean reusable = !connection.broken;
+        if (reusable) {
+            try {
+                if (!connection.physical.getAutoCommit()) {
+                    connection.physical.rollback();
+                    connection.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        lock.lock();
+        try {
+            if (reusable && !closed && !connection.isExpired(System.nanoTime(), settings.maxLifetimeMillis)) {
+                connection.lastUsedAt = System.nanoTime();
+                idle.addFirst(connection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(connection);
+    }
+
+    private void destroy(PooledConnection connection) {
+        closeQuietly(connection);
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly(PooledConnection connection) {
+        destroyedCount.increment();
+        try {
+            connection.physical.close();
+        } catch (SQLException e) {
+            Logger.debug("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retire idle connections past the idle timeout (down to the minimum size)
+     * or past their max lifetime, then top the pool back up to the minimum size
+     */
+    void maintain() {
+        List<PooledConnection> retired = new ArrayList<>();
+        long now = System.nanoTime();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis);
+        lock.lock();
+        try {
+            // Least recently used connections sit at the tail
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection connection = it.next();
+                boolean idleTooLong = settings.idleTimeoutMillis > 0
+                        && now - connection.lastUsedAt > idleTimeoutNanos
+                        && total - retired.size() > settings.minIdle;
+                if (idleTooLong || connection.isExpired(now, settings.maxLifetimeMillis)) {
+                    it.remove();
+                    retired.add(connection);
+                }
+            }
+            total -= retired.size();
+            if (!retired.isEmpty()) {
+                available.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection connection : retired) {
+            closeQuietly(connection);
+        }
+
+        while (needsTopUp() && addIdleConnection()) {
+            // keep opening until the minimum size is reached
+        }
+    }
+
+    private boolean needsTopUp() {
+        lock.lock();
+        try {
+            return !closed && total < settings.minIdle;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close idle connections and refuse new borrows, borrowed connections are closed on return
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> remaining;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+            total -= remaining.size();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        for (PooledConnection connection : remaining) {
+            closeQuietly(connection);
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(total, idle.size(), acquireCount.sum(), timeoutCount.sum(), waitNanos.sum(),
+                    maxWaitNanos.get(), createdCount.sum(), destroyedCount.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Physical connection plus its pool bookkeeping
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        // Null when statement caching is disabled
+        final StatementCache statements;
+        final long createdAt = System.nanoTime();
+        volatile long lastUsedAt = createdAt;
+        // Set when the driver reported a connection-level failure
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = settings.statementCacheSize > 0 ? new StatementCache(settings.statementCacheSize) : null;
+        }
+
+        boolean isExpired(long now, long maxLifetimeMillis) {
+            return maxLifetimeMillis > 0 && now - createdAt > TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new Lease(this));
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection, unusable once closed
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection connection;
+        private boolean returned;
+
+        Lease(PooledConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(connection);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || connection.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + connection.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                if (connection.statements != null && isCacheablePrepare(method)) {
+                    int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : -1;
+                    return connection.statements.prepare(connection.physical, (Connection) proxy,
+                            (String) args[0], autoGeneratedKeys);
+                }
+                return method.invoke(connection.physical, args);
+            } catch (InvocationTargetException e) {
+                throw markIfBroken(e.getCause());
+            } catch (SQLException e) {
+                throw markIfBroken(e);
+            }
+        }
+
+        private Throwable markIfBroken(Throwable failure) {
+            if (failure instanceof SQLException && isConnectionFailure((SQLException) failure)) {
+                connection.broken = true;
+            }
+            return failure;
+        }
+    }
+
+    /**
+     * prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys)
+     */
+    private static boolean isCacheablePrepare(Method method) {
+        if (!"prepareStatement".equals(method.getName()) || method.getReturnType() != PreparedStatement.class) {
+            return false;
+        }
+        Class<?>[] parameters = method.getParameterTypes();
+        return parameters.length == 1 || (parameters.length == 2 && parameters[1] == int.class);
+    }
+
+    /**
+     * SQLState class 08 is a connection exception
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * Pool sizing and timing, defaults come from the db.pool.* keys of application.properties
+     */
+    public static final class Settings {
+        private int initialSize = 5;
+        private int minIdle = 2;
+        private int maxSize = 20;
+        private long acquireTimeoutMillis = 30_000;
+        private long idleTimeoutMillis = 600_000;
+        private long maxLifetimeMillis = 1_800_000;
+        private long validationIntervalMillis = 5_000;
+        private int validationTimeoutSeconds = 2;
+        private long maintenanceIntervalMillis = 30_000;
+        private int statementCacheSize = 64;
+
+        public static Settings fromConfig() {
+            return new Settings()
+                    .initialSize(AppConfig.getInt("db.pool.initial", 5))
+                    .minIdle(AppConfig.getInt("db.pool.min", 2))
+                    .maxSize(AppConfig.getInt("db.pool.max", 20))
+                    .acquireTimeoutMillis(AppConfig.getLong("db.pool.acquire.timeout.ms", 30_000))
+                    .idleTimeoutMillis(AppConfig.getLong("db.pool.idle.timeout.ms", 600_000))
+                    .maxLifetimeMillis(AppConfig.getLong("db.pool.max.lifetime.ms", 1_800_000))
+                    .validationIntervalMillis(AppConfig.getLong("db.pool.validation.interval.ms", 5_000))
+                    .validationTimeoutSeconds(AppConfig.getInt("db.pool.validation.timeout.seconds", 2))
+                    .maintenanceIntervalMillis(AppConfig.getLong("db.pool.maintenance.interval.ms", 30_000))
+                    .statementCacheSize(AppConfig.getInt("db.pool.statement.cache.size", 64));
+        }
+
+        public Settings initialSize(int initialSize) {
+            this.initialSize = initialSize;
+            return this;
+        }
+
+        public Settings minIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        public Settings maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Settings acquireTimeoutMillis(long acquireTimeoutMillis) {
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Idle time after which connections above the minimum size are closed, 0 to keep them
+         */
+        public Settings idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Age after which a connection is retired, 0 for no limit
+         */
+        public Settings maxLifetimeMillis(long maxLifetimeMillis) {
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            return this;
+        }
+
+        /**
+         * Connections idle for less than this are handed out without an isValid() round trip
+         */
+        public Settings validationIntervalMillis(long validationIntervalMillis) {
+            this.validationIntervalMillis = validationIntervalMillis;
+            return this;
+        }
+
+        public Settings validationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * Delay between maintenance runs, 0 to disable the background task
+         */
+        public Settings maintenanceIntervalMillis(long maintenanceIntervalMillis) {
+            this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Prepared statements kept open per connection, 0 to disable statement caching
+         */
+        public Settings statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+    }
+
+    /**
+     * Snapshot of pool occupancy and acquisition metrics
+     */
+    public static final class Stats {
+        private final int totalConnections;
+        private final int idleConnections;
+        private final long acquireCount;
+        private final long timeoutCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long createdCount;
+        private final long destroyedCount;
+
+        Stats(int totalConnections, int idleConnections, long acquireCount, long timeoutCount,
+              long totalWaitNanos, long maxWaitNanos, long createdCount, long destroyedCount) {
+            this.totalConnections = totalConnections;
+            this.idleConnections = idleConnections;
+            this.acquireCount = acquireCount;
+            this.timeoutCount = timeoutCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+        }
+
+        public int getTotalConnections() {
+            return totalConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getActiveConnections() {
+            return totalConnections - idleConnections;
+        }
+
+        public long getAcquireCount() {
+            return acquireCount;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public double getAverageWaitMillis() {
+            return acquireCount == 0 ? 0 : totalWaitNanos / 1_000_000.0 / acquireCount;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public long getDestroyedCount() {
+            return destroyedCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "total=" + totalConnections +
+                    ", idle=" + idleConnections +
+                    ", acquired=" + acquireCount +
+                    ", timeouts=" + timeoutCount +
+                    ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                    ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+                    ", created=" + createdCount +
+                    ", destroyed=" + destroyedCount +
+                    '}';
+        }
+    }
+}
@@ -7,20 +7,46 @@ import java.sql.SQLException;
 /**
  * Database Connection Utility using JDBC
  * Singleton pattern for database connection management
+ * Connections are borrowed from a ConnectionPool; closing one returns it to the pool
  */
 public class DatabaseConnection {
     private static DatabaseConnection instance;
-    private Connection connection;
-    
-    // Database configuration
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/houseprice_db";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "password";
-    private static final String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
+    private ConnectionPool pool;
+
+    // Database configuration, overridden by the db.* keys of application.properties
+    private static final String DB_URL = withUrlOptions(AppConfig.get("db.url", "jdbc:mysql://localhost:3306/houseprice_db"));
+    private static final String DB_USER = AppConfig.get("db.user", "root");
+    private static final String DB_PASSWORD = AppConfig.get("db.password", "password");
+    private static final String DB_DRIVER = AppConfig.get("db.driver", "com.mysql.cj.jdbc.Driver");
 
     private DatabaseConnection() {
     }
 
+    /**
+     * Serve connections from the given pool instead of one configured from db.*
+     */
+    public DatabaseConnection(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Append the driver options enabled in the configuration unless the URL already sets them
+     *   db.rewrite.batched.statements - rewriteBatchedStatements, multi-row INSERT per batch
+     *   db.cursor.fetch               - useCursorFetch, server-side cursors honouring the fetch size;
+     *                                   off by default as it switches every pooled query to server-side prepares
+     */
+    private static String withUrlOptions(String url) {
+        url = withOption(url, "rewriteBatchedStatements", AppConfig.getBoolean("db.rewrite.batched.statements", true));
+        return withOption(url, "useCursorFetch", AppConfig.getBoolean("db.cursor.fetch", false));
+    }
+
+    private static String withOption(String url, String option, boolean enabled) {
+        if (!enabled || url.contains(option)) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + option + "=true";
+    }
+
     /**
      * Get singleton instance of DatabaseConnection
      */
@@ -32,32 +58,46 @@ public class DatabaseConnection {
     }
 
     /**
-     * Establish connection to database
+     * Borrow a pooled connection, close it to give it back
      */
     public Connection getConnection() throws SQLException {
-        try {
-            Class.forName(DB_DRIVER);
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        return getPool().borrow();
+    }
+
+    private synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            try {
+                Class.forName(DB_DRIVER);
+            } catch (ClassNotFoundException e) {
+                throw new SQLException("MySQL JDBC Driver not found", e);
             }
-            return connection;
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found", e);
+            pool = new ConnectionPool(DatabaseConnection::openConnection, ConnectionPool.Settings.fromConfig());
+        }
+        return pool;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        try {
+            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
         } catch (SQLException e) {
-            throw new SQLException("Failed to establish database connection", e);
+            throw new SQLException("Failed to establish database connection", e.getSQLState(), e);
         }
     }
 
     /**
-     * Close database connection
+     * Get pool occupancy and wait-time metrics, null before the first connection
      */
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    public synchronized ConnectionPool.Stats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
+    }
+
+    /**
+     * Close all pooled connections
+     */
+    public synchronized void closeConnection() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
         }
     }
 
@@ -65,9 +105,8 @@ public class DatabaseConnection {
      * Test database connection
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            return conn != null && conn.isValid(2);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
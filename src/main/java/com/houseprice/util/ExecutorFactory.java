@@ -0,0 +1,79 @@
+package com.houseprice.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the executors used by the engine and the HTTP server
+ * The thread.mode setting selects the execution mode:
+ *   virtual  - one virtual thread per task (JDK 21+), falls back to platform
+ *   platform - fixed pool of platform threads
+ *   auto     - virtual when the running JDK supports it, otherwise platform
+ * Any other value selects platform. Platform threads are non-daemon, like those of
+ * Executors.newFixedThreadPool, so owners must shut their executors down.
+ */
+public class ExecutorFactory {
+    public static final String MODE_AUTO = "auto";
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_PLATFORM = "platform";
+
+    private static final Method VIRTUAL_EXECUTOR_FACTORY = findVirtualExecutorFactory();
+
+    private ExecutorFactory() {
+    }
+
+    /**
+     * Looked up reflectively so the project still compiles and runs on JDK 11
+     */
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_EXECUTOR_FACTORY != null;
+    }
+
+    /**
+     * Create an executor in the configured mode
+     * @param poolSize number of threads when a platform pool is used
+     * @param name prefix for platform thread names
+     */
+    public static ExecutorService newExecutor(int poolSize, String name) {
+        return newExecutor(AppConfig.get("thread.mode", MODE_AUTO), poolSize, name);
+    }
+
+    public static ExecutorService newExecutor(String mode, int poolSize, String name) {
+        boolean wantVirtual = MODE_VIRTUAL.equalsIgnoreCase(mode) || MODE_AUTO.equalsIgnoreCase(mode);
+        if (wantVirtual && isVirtualThreadsSupported()) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR_FACTORY.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Logger.warn("Virtual threads unavailable, using platform pool: " + e.getMessage());
+            }
+        } else if (MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            Logger.warn("Virtual threads need JDK 21+, using platform pool for " + name);
+        }
+        return Executors.newFixedThreadPool(poolSize, new NamedThreadFactory(name));
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            return new Thread(task, prefix + "-" + counter.getAndIncrement());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.houseprice.util;
+
+/**
+ * Field lookup in the flat JSON objects posted by the web forms
+ * Handles quoted and bare values without escapes or nesting, which is all the
+ * forms send; not a general JSON parser.
+ */
+public class JsonFields {
+
+    private JsonFields() {
+    }
+
+    /**
+     * Value of a top-level key, or an empty string when the key is absent
+     */
+    public static String get(String json, String key) {
+        return get(json, key, null);
+    }
+
+    /**
+     * Value of a top-level key, or defaultValue (empty string if null) when the key is absent
+     */
+    public static String get(String json, String key, String defaultValue) {
+        String searchKey = "\"" + key + "\":";
+        int startIdx = json.indexOf(searchKey);
+        if (startIdx == -1) {
+            return defaultValue != null ? defaultValue : "";
+        }
+        startIdx += searchKey.length();
+        
+        // Skip whitespace
+        while (startIdx < json.length() && Character.isWhitespace(json.charAt(startIdx))) {
+            startIdx++;
+        }
+        
+        if (json.charAt(startIdx) == '"') {
+            startIdx++;
+            int endIdx = json.indexOf('"', startIdx);
+            return json.substring(startIdx, endIdx);
+        } else {
+            int endIdx = startIdx;
+            while (endIdx < json.length() && json.charAt(endIdx) != ',' && json.charAt(endIdx) != '}') {
+                endIdx++;
+            }
+            return json.substring(startIdx, endIdx).trim();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.houseprice.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache over a BoundedCache with single-flight loading
+ * A miss loads the value through the loader; concurrent misses on the same key
+ * wait for that one load instead of issuing their own. invalidate() also cancels
+ * the publication of a load still in flight, so a value read before a write
+ * never lands in the cache after it. Null results are returned but not cached.
+ */
+public class ReadThroughCache<K, V> {
+
+    /**
+     * Loads the value for a key on a miss, null when there is none
+     */
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    private final BoundedCache<K, V> cache;
+    private final Loader<K, V> loader;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param maxSize maximum number of entries, must be positive
+     * @param ttlMillis time to live of an entry after it is loaded, 0 or less for no expiry
+     */
+    public ReadThroughCache(int maxSize, long ttlMillis, Loader<K, V> loader) {
+        this.cache = new BoundedCache<>(maxSize, ttlMillis);
+        this.loader = loader;
+    }
+
+    /**
+     * Get the cached value, loading it on a miss
+     * @throws Exception whatever the loader threw, rethrown to every caller that waited on the load
+     */
+    public V get(K key) throws Exception {
+        V cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        return load(key, load);
+    }
+
+    private V load(K key, CompletableFuture<V> load) throws Exception {
+        loads.increment();
+        long start = System.nanoTime();
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (Throwable t) {
+            // Fail the waiters too, never leave them blocked on an abandoned load
+            loadFailures.increment();
+            inFlight.remove(key, load);
+            load.completeExceptionally(t);
+            throw t;
+        } finally {
+            loadNanos.add(System.nanoTime() - start);
+        }
+        // Publish only if no invalidate() ran while loading; compute serializes with it per key
+        inFlight.compute(key, (k, current) -> {
+            if (current == load && value != null) {
+                cache.put(k, value);
+            }
+            return current == load ? null : current;
+        });
+        load.complete(value);
+        return value;
+    }
+
+    private static <V> V await(CompletableFuture<V> load) throws Exception {
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Seed the cache with a value read from its source ageMillis ago, e.g. when warming up
+     * The value expires when a load made at that time would have, and is skipped if that
+     * is already past or a load for the key is in flight, that load publishes its own value.
+     */
+    public void put(K key, V value, long ageMillis) {
+        if (value == null) {
+            return;
+        }
+        inFlight.compute(key, (k, current) -> {
+            if (current == null) {
+                cache.put(k, value, ageMillis);
+            }
+            return current;
+        });
+    }
+
+    /**
+     * Drop a key after its source changed, including a load that is still running
+     */
+    public void invalidate(K key) {
+        inFlight.compute(key, (k, current) -> {
+            cache.invalidate(k);
+            return null;
+        });
+    }
+
+    public void clear() {
+        inFlight.clear();
+        cache.clear();
+    }
+
+    public Stats getStats() {
+        return new Stats(cache.getStats(), loads.sum(), loadFailures.sum(), loadNanos.sum(), coalesced.sum());
+    }
+
+    /**
+     * Point-in-time counters: lookups, loads and the time spent loading
+     */
+    public static final class Stats {
+        private final BoundedCache.Stats cacheStats;
+        private final long loadCount;
+        private final long loadFailureCount;
+        private final long totalLoadNanos;
+        private final long coalescedCount;
+
+        Stats(BoundedCache.Stats cacheStats, long loadCount, long loadFailureCount, long totalLoadNanos,
+              long coalescedCount) {
+            this.cacheStats = cacheStats;
+            this.loadCount = loadCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadNanos = totalLoadNanos;
+            this.coalescedCount = coalescedCount;
+        }
+
+        public long getHitCount() {
+            return cacheStats.getHitCount();
+        }
+
+        public long getMissCount() {
+            return cacheStats.getMissCount();
+        }
+
+        public double getHitRate() {
+            return cacheStats.getHitRate();
+        }
+
+        public long getEvictionCount() {
+            return cacheStats.getEvictionCount();
+        }
+
+        public int getSize() {
+            return cacheStats.getSize();
+        }
+
+        /**
+         * Loader calls, at most one per key at a time
+         */
+        public long getLoadCount() {
+            return loadCount;
+        }
+
+        public long getLoadFailureCount() {
+            return loadFailureCount;
+        }
+
+        /**
+         * Misses that waited for another caller's load instead of loading themselves
+         */
+        public long getCoalescedCount() {
+            return coalescedCount;
+        }
+
+        public double getAverageLoadMillis() {
+            return loadCount == 0 ? 0 : totalLoadNanos / 1_000_000.0 / loadCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "hits=" + getHitCount() +
+                    ", misses=" + getMissCount() +
+                    ", loads=" + loadCount +
+                    ", loadFailures=" + loadFailureCount +
+                    ", coalesced=" + coalescedCount +
+                    ", size=" + getSize() +
+                    ", hitRate=" + String.format("%.2f", getHitRate()) +
+                    ", avgLoadMs=" + String.format("%.3f", getAverageLoadMillis()) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.houseprice.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of prepared statements owned by one pooled connection
+ * Callers get a proxy whose close() resets the statement and keeps it prepared
+ * for the next borrower of the same connection. Not thread safe, a pooled
+ * connection is only used by one thread at a time.
+ */
+class StatementCache {
+    private final Map<String, CachedStatement> entries;
+
+    StatementCache(int maxSize) {
+        this.entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a prepared statement for the SQL, preparing it on first use
+     * @param owner connection handle returned by the statement's getConnection()
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or NO_GENERATED_KEYS, -1 when not given
+     */
+    PreparedStatement prepare(Connection physical, Connection owner, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        String key = autoGeneratedKeys < 0 ? sql : autoGeneratedKeys + "|" + sql;
+        CachedStatement entry = entries.get(key);
+        if (entry != null && entry.inUse) {
+            // Same SQL already open on this connection, hand out a private statement
+            return prepareDirect(physical, sql, autoGeneratedKeys);
+        }
+        if (entry == null) {
+            entry = new CachedStatement(key, prepareDirect(physical, sql, autoGeneratedKeys));
+            entries.put(key, entry);
+        }
+        entry.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, new Checkout(entry, owner));
+    }
+
+    private static PreparedStatement prepareDirect(Connection physical, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        return autoGeneratedKeys < 0 ? physical.prepareStatement(sql) : physical.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private final class CachedStatement {
+        final String key;
+        final PreparedStatement statement;
+        final int defaultFetchSize;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(String key, PreparedStatement statement) throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        /**
+         * Reset the statement for reuse, or close it if it was evicted or cannot be reset
+         */
+        void checkin() {
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                ResultSet rs = statement.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                if (statement.getFetchSize() != defaultFetchSize) {
+                    statement.setFetchSize(defaultFetchSize);
+                }
+            } catch (SQLException e) {
+                entries.remove(key);
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                Logger.debug("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One use of a cached statement, unusable once closed
+     */
+    private static final class Checkout implements InvocationHandler {
+        private final CachedStatement entry;
+        private final Connection owner;
+        private boolean closed;
+
+        Checkout(CachedStatement entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        entry.checkin();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.houseprice.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding for low-cardinality string columns
+ * Every distinct value gets a small int code on first use and keeps it for the
+ * life of the process. Objects store the code instead of a String, so equal
+ * values share one canonical instance and can be compared with ==. Codes are not
+ * stable across processes; persist the decoded string, never the code.
+ *
+ * Lookups are lock-free; assigning a new code is synchronized. A dictionary is
+ * capped at maxSize entries so a high-cardinality column cannot grow it without
+ * bound. Columns read from the database use tryEncode(), which returns UNENCODED
+ * once the dictionary is full so the caller can keep the raw string instead.
+ */
+public final class StringDictionary {
+    /**
+     * Code of null
+     */
+    public static final int NULL = -1;
+
+    /**
+     * Code returned by tryEncode() for a new value when the dictionary is full
+     */
+    public static final int UNENCODED = -2;
+
+    private final String name;
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Indexed by code, replaced on growth so readers never see a partially copied array
+    private volatile String[] values = new String[8];
+    private int size;
+    private boolean overflowLogged;
+
+    /**
+     * @param name column name used in error messages
+     * @param maxSize maximum number of distinct values
+     */
+    public StringDictionary(String name, int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Dictionary seeded with values whose codes are their positions in the array
+     */
+    public StringDictionary(String name, int maxSize, String... seed) {
+        this(name, maxSize);
+        for (String value : seed) {
+            encode(value);
+        }
+    }
+
+    /**
+     * Code of a value, assigning the next free code to a new one
+     * @throws IllegalStateException if the dictionary is full
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : assign(value, true);
+    }
+
+    /**
+     * Code of a value like encode(), but UNENCODED instead of an exception when the
+     * dictionary is full. The caller must then keep the raw value itself.
+     */
+    public int tryEncode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : assign(value, false);
+    }
+
+    private synchronized int assign(String value, boolean failWhenFull) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == maxSize) {
+            if (failWhenFull) {
+                throw new IllegalStateException("Too many distinct " + name + " values, the limit is " + maxSize);
+            }
+            if (!overflowLogged) {
+                overflowLogged = true;
+                Logger.warn("Too many distinct " + name + " values, new ones are stored unencoded");
+            }
+            return UNENCODED;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Code of a value without assigning one, NULL when the value was never encoded
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NULL;
+    }
+
+    /**
+     * Canonical string of a code returned by encode()
+     */
+    public String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Canonical instance of a value, encoding it if needed
+     */
+    public String intern(String value) {
+        return decode(encode(value));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
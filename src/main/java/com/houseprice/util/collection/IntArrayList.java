@@ -0,0 +1,143 @@
+package com.houseprice.util.collection;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Growable list of ints backed by a primitive array
+ * The sorted operations keep the list in ascending order without duplicates,
+ * which makes it a compact ordered id set: ids that arrive in increasing order,
+ * like AUTO_INCREMENT keys, are appended in constant time. Not thread safe.
+ */
+public class IntArrayList {
+    private int[] elements;
+    private int size;
+
+    public IntArrayList() {
+        this(8);
+    }
+
+    public IntArrayList(int initialCapacity) {
+        elements = new int[Math.max(initialCapacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public void set(int index, int value) {
+        checkIndex(index);
+        elements[index] = value;
+    }
+
+    /**
+     * Remove the element at index and return it
+     */
+    public int removeAt(int index) {
+        checkIndex(index);
+        int removed = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Binary search of a sorted list, same contract as Arrays.binarySearch
+     */
+    public int binarySearch(int value) {
+        return Arrays.binarySearch(elements, 0, size, value);
+    }
+
+    /**
+     * Insert a value into a sorted list
+     * @return false if the value was already present
+     */
+    public boolean addSorted(int value) {
+        if (size == 0 || elements[size - 1] < value) {
+            add(value);
+            return true;
+        }
+        int index = binarySearch(value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -(index + 1);
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove a value from a sorted list
+     * @return false if the value was absent
+     */
+    public boolean removeSorted(int value) {
+        int index = binarySearch(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Index of the first element greater than value in a sorted list
+     */
+    public int indexAfter(int value) {
+        int index = binarySearch(value);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,183 @@
+package com.houseprice.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to double values
+ * Same layout as IntObjectMap: primitive key and value arrays, linear probing
+ * and backward-shift deletion, so neither keys nor values are boxed. Occupied
+ * slots are tracked in a separate array because every double is a valid value.
+ * Not thread safe.
+ */
+public class IntDoubleMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * Receives each key and value of the map
+     */
+    public interface Visitor {
+        void accept(int key, double value);
+    }
+
+    private int[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public IntDoubleMap() {
+        this(16);
+    }
+
+    public IntDoubleMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Value of a key, or defaultValue if it is absent
+     */
+    public double get(int key, double defaultValue) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        for (int i = slot(key); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Associate a value with a key
+     * @return whether the key was new
+     */
+    public boolean put(int key, double value) {
+        int i = slot(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return false;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Add delta to the value of a key, starting from 0 when it is absent
+     * @return the new value
+     */
+    public double addTo(int key, double delta) {
+        int i = slot(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] += delta;
+                return values[i];
+            }
+        }
+        put(key, delta);
+        return delta;
+    }
+
+    /**
+     * @return whether the key was present
+     */
+    public boolean remove(int key) {
+        int i = slot(key);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Close the gap at a freed slot by moving back entries that probed past it
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) {
+                break;
+            }
+            int home = slot(keys[i]);
+            // Move the entry unless its home lies cyclically in (gap, i]
+            if (gap <= i ? (home <= gap || home > i) : (home <= gap && home > i)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                while (used[j]) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                used[j] = true;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                visitor.accept(keys[i], values[i]);
+            }
+        }
+    }
+}
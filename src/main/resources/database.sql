@@ -15,11 +15,23 @@ CREATE TABLE IF NOT EXISTS properties (
     year_built INT NOT NULL,
     property_type VARCHAR(50) NOT NULL,
     status VARCHAR(50) DEFAULT 'ACTIVE',
+    -- Subtype attributes, stored in the same row so one query prices any property
+    floors INT NOT NULL DEFAULT 0,
+    has_garage BOOLEAN NOT NULL DEFAULT FALSE,
+    has_garden BOOLEAN NOT NULL DEFAULT FALSE,
+    rent_income DOUBLE NOT NULL DEFAULT 0,
+    has_parking BOOLEAN NOT NULL DEFAULT FALSE,
+    max_floors INT NOT NULL DEFAULT 0,
+    load_capacity DOUBLE NOT NULL DEFAULT 0,
+    has_loading BOOLEAN NOT NULL DEFAULT FALSE,
+    zone_type VARCHAR(50),
     created_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     INDEX idx_type (property_type),
     INDEX idx_status (status)
 );
 
+-- Existing databases created before the subtype columns: run migrate_subtype_columns.sql
+
 -- Create Prediction Results Table
 CREATE TABLE IF NOT EXISTS prediction_results (
     prediction_id INT AUTO_INCREMENT PRIMARY KEY,
@@ -37,16 +49,23 @@ CREATE TABLE IF NOT EXISTS prediction_results (
 );
 
 -- Insert Sample Data
-INSERT INTO properties (address, area, bedrooms, bathrooms, year_built, property_type, status) VALUES
-('123 Oak Street', 2000, 3, 2, 2015, 'RESIDENTIAL', 'ACTIVE'),
-('456 Business Ave', 5000, 0, 1, 2010, 'COMMERCIAL', 'ACTIVE'),
-('789 Factory Road', 10000, 0, 1, 2005, 'INDUSTRIAL', 'ACTIVE'),
-('321 Pine Avenue', 1800, 2, 2, 2018, 'RESIDENTIAL', 'ACTIVE'),
-('654 Main Street', 3500, 0, 2, 2012, 'COMMERCIAL', 'ACTIVE');
+INSERT INTO properties (address, area, bedrooms, bathrooms, year_built, property_type, status,
+                        floors, has_garage, has_garden, rent_income, has_parking, max_floors,
+                        load_capacity, has_loading, zone_type) VALUES
+('123 Oak Street', 2000, 3, 2, 2015, 'RESIDENTIAL', 'ACTIVE', 2, TRUE, TRUE, 0, FALSE, 0, 0, FALSE, NULL),
+('456 Business Ave', 5000, 0, 1, 2010, 'COMMERCIAL', 'ACTIVE', 0, FALSE, FALSE, 15000, TRUE, 5, 0, FALSE, NULL),
+('789 Factory Road', 10000, 0, 1, 2005, 'INDUSTRIAL', 'ACTIVE', 0, FALSE, FALSE, 0, FALSE, 0, 5000, TRUE, 'HEAVY'),
+('321 Pine Avenue', 1800, 2, 2, 2018, 'RESIDENTIAL', 'ACTIVE', 1, FALSE, TRUE, 0, FALSE, 0, 0, FALSE, NULL),
+('654 Main Street', 3500, 0, 2, 2012, 'COMMERCIAL', 'ACTIVE', 0, FALSE, FALSE, 10000, FALSE, 3, 0, FALSE, NULL);
 
 -- Create Indexes for Performance
 CREATE INDEX idx_properties_address ON properties(address);
 CREATE INDEX idx_predictions_date_range ON prediction_results(prediction_date);
+CREATE INDEX idx_properties_year_built ON properties(year_built);
+CREATE INDEX idx_properties_area ON properties(area);
+-- Predictions of one property in date order without a filesort
+CREATE INDEX idx_property_date ON prediction_results(property_id, prediction_date);
+-- Existing databases created before the year, area and property/date indexes: run migrate_finder_indexes.sql
 
 -- View for Property Statistics
 CREATE OR REPLACE VIEW property_statistics AS
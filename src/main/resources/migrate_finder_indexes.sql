@@ -0,0 +1,25 @@
+-- Migration for databases created before the finder indexes
+-- Adds each missing index; safe to run more than once.
+-- MySQL has no CREATE INDEX IF NOT EXISTS, so every index is checked in information_schema
+USE houseprice_db;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_properties_year_built ON properties(year_built)', 'DO 0')
+            FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'properties' AND INDEX_NAME = 'idx_properties_year_built');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_properties_area ON properties(area)', 'DO 0')
+            FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'properties' AND INDEX_NAME = 'idx_properties_area');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_property_date ON prediction_results(property_id, prediction_date)', 'DO 0')
+            FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'prediction_results' AND INDEX_NAME = 'idx_property_date');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,60 @@
+package com.houseprice.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.store.ColumnarPropertyStore;
+
+/**
+ * Tests for columnar bulk scoring
+ */
+public class ColumnarPropertyStoreTest {
+
+    private List<Property> samplePortfolio() {
+        List<Property> properties = new ArrayList<>();
+        properties.add(new IndustrialProperty("789 Factory Rd", 10000, 0, 1, 2005, 500, true, "HEAVY"));
+        properties.add(new ResidentialProperty("123 Oak St", 2000, 3, 2, 2015, 2, true, true));
+        properties.add(new CommercialProperty("456 Business Ave", 5000, 0, 1, 2010, 5000, true, 5));
+        properties.add(new ResidentialProperty("321 Pine Ave", 1800, 2, 2, 2018, 1, false, true));
+        properties.add(new CommercialProperty("654 Main St", 3500, 0, 2, 2012, 2500, false, 3));
+        for (int i = 0; i < properties.size(); i++) {
+            properties.get(i).setPropertyId(i + 1);
+        }
+        return properties;
+    }
+
+    @Test
+    public void testColumnarScoringMatchesObjectScoring() {
+        List<Property> properties = samplePortfolio();
+        ColumnarPropertyStore store = ColumnarPropertyStore.from(properties);
+
+        double expectedSum = 0;
+        for (Property property : properties) {
+            expectedSum += property.calculatePrice();
+        }
+
+        assertEquals(5, store.size());
+        assertEquals(expectedSum / 5, store.averagePrice(), 0.0001);
+        assertEquals(properties.get(0).calculatePrice(),
+                store.sumPrices(ColumnarPropertyStore.TYPE_INDUSTRIAL), 0.0);
+    }
+
+    @Test
+    public void testRowsArePartitionedByType() {
+        ColumnarPropertyStore store = ColumnarPropertyStore.from(samplePortfolio());
+
+        assertEquals(2, store.count(ColumnarPropertyStore.TYPE_RESIDENTIAL));
+        assertEquals(2, store.count(ColumnarPropertyStore.TYPE_COMMERCIAL));
+        assertEquals(1, store.count(ColumnarPropertyStore.TYPE_INDUSTRIAL));
+        assertEquals("Residential rows come first, in arrival order", 2, store.getPropertyId(0));
+        assertEquals(4, store.getPropertyId(1));
+        assertEquals(ColumnarPropertyStore.TYPE_INDUSTRIAL, store.getTypeCode(4));
+    }
+}
@@ -0,0 +1,248 @@
+package com.houseprice.test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Test;
+
+import com.houseprice.dao.PropertyDAO;
+import com.houseprice.model.Property;
+import com.houseprice.util.ConnectionPool;
+import com.houseprice.util.DatabaseConnection;
+
+/**
+ * Tests for ConnectionPool using in-memory fake connections
+ */
+public class ConnectionPoolTest {
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicBoolean valid = new AtomicBoolean(true);
+    private ConnectionPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool(int maxSize, long acquireTimeoutMillis) {
+        ConnectionPool.Settings settings = new ConnectionPool.Settings()
+                .initialSize(0)
+                .minIdle(0)
+                .maxSize(maxSize)
+                .acquireTimeoutMillis(acquireTimeoutMillis)
+                .validationIntervalMillis(0)
+                .maintenanceIntervalMillis(0);
+        return new ConnectionPool(this::fakeConnection, settings);
+    }
+
+    private Connection fakeConnection() {
+        opened.incrementAndGet();
+        AtomicBoolean isClosed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            isClosed.set(true);
+                            closed.incrementAndGet();
+                            return null;
+                        case "isClosed":
+                            return isClosed.get();
+                        case "isValid":
+                            return valid.get();
+                        case "getAutoCommit":
+                            return true;
+                        case "prepareStatement":
+                            prepared.incrementAndGet();
+                            return fakeStatement();
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private PreparedStatement fakeStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (type == ResultSet.class) {
+                        return emptyResultSet();
+                    }
+                    if (type == boolean.class) {
+                        return Boolean.FALSE;
+                    }
+                    return type == int.class ? Integer.valueOf(0) : null;
+                });
+    }
+
+    private ResultSet emptyResultSet() {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return Boolean.FALSE;
+                    }
+                    return type == int.class ? Integer.valueOf(1) : null;
+                });
+    }
+
+    @Test
+    public void testClosedConnectionIsReused() throws SQLException {
+        pool = newPool(2, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            try (Connection conn = pool.borrow()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+
+        assertEquals("One physical connection should serve every borrow", 1, opened.get());
+        assertEquals(0, closed.get());
+        assertEquals(5, pool.getStats().getAcquireCount());
+        assertEquals(1, pool.getStats().getIdleConnections());
+    }
+
+    @Test
+    public void testReturnedHandleIsUnusable() throws SQLException {
+        pool = newPool(1, 1000);
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertEquals("Double close should return the connection once", 1, pool.getStats().getIdleConnections());
+        try {
+            conn.createStatement();
+            fail("Statement created on a returned connection");
+        } catch (SQLException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPreparedStatementsAreCachedPerConnection() throws SQLException {
+        pool = newPool(1, 1000);
+        String sql = "SELECT property_id FROM properties WHERE property_id = ?";
+
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.borrow();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                assertSame(conn, pstmt.getConnection());
+            }
+        }
+        assertEquals("Statement should be prepared once and reused", 1, prepared.get());
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement outer = conn.prepareStatement(sql);
+             PreparedStatement inner = conn.prepareStatement(sql)) {
+            assertFalse(outer.isClosed());
+            assertFalse(inner.isClosed());
+        }
+        assertEquals("A statement already in use should not be shared", 2, prepared.get());
+    }
+
+    @Test
+    public void testExhaustedPoolTimesOut() throws SQLException {
+        pool = newPool(2, 50);
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+
+        try {
+            pool.borrow();
+            fail("Borrow beyond max size should time out");
+        } catch (SQLTransientConnectionException expected) {
+            // expected
+        }
+
+        assertEquals(2, opened.get());
+        assertEquals(1, pool.getStats().getTimeoutCount());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testWaiterGetsReturnedConnection() throws Exception {
+        pool = newPool(1, 5000);
+        Connection held = pool.borrow();
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                held.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        releaser.start();
+
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isClosed());
+        }
+        releaser.join();
+
+        assertEquals(1, opened.get());
+        assertTrue("Wait time should be recorded", pool.getStats().getMaxWaitMillis() > 0);
+    }
+
+    @Test
+    public void testInvalidIdleConnectionIsReplaced() throws SQLException {
+        pool = newPool(1, 1000);
+        pool.borrow().close();
+
+        valid.set(false);
+        try (Connection conn = pool.borrow()) {
+            assertFalse(conn.isClosed());
+        }
+
+        assertEquals("Invalid connection should be closed and replaced", 2, opened.get());
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testCloseReleasesIdleConnections() throws SQLException {
+        pool = newPool(3, 1000);
+        Connection a = pool.borrow();
+        Connection b = pool.borrow();
+        a.close();
+
+        pool.close();
+        assertEquals(1, closed.get());
+
+        b.close();
+        assertEquals("Connections returned after close should be closed", 2, closed.get());
+        assertEquals(0, pool.getStats().getTotalConnections());
+    }
+
+    @Test
+    public void testStreamHoldsConnectionUntilClosed() throws Exception {
+        pool = newPool(1, 1000);
+        PropertyDAO dao = new PropertyDAO(new DatabaseConnection(pool));
+
+        try (Stream<Property> properties = dao.stream()) {
+            assertEquals("Open stream should keep its connection", 1, pool.getStats().getActiveConnections());
+            assertEquals(0, properties.count());
+            assertEquals("Consumed stream should keep its connection until closed",
+                    1, pool.getStats().getActiveConnections());
+        }
+        assertEquals(0, pool.getStats().getActiveConnections());
+
+        dao.forEach(property -> fail("Empty result should not be visited"));
+        assertEquals("forEach should return its connection", 0, pool.getStats().getActiveConnections());
+        assertEquals(1, pool.getStats().getIdleConnections());
+    }
+}
@@ -0,0 +1,195 @@
+package com.houseprice.test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.houseprice.dao.EmbeddedPredictionResultRepository;
+import com.houseprice.dao.EmbeddedPropertyRepository;
+import com.houseprice.dao.Page;
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+
+/**
+ * Tests for the embedded repositories and their change log
+ */
+public class EmbeddedRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ResidentialProperty residential(String address, int yearBuilt) {
+        return new ResidentialProperty(address, 2000, 3, 2, yearBuilt, 2, true, false);
+    }
+
+    @Test
+    public void testStreamAndForEachVisitEveryRow() throws Exception {
+        EmbeddedPropertyRepository repository = new EmbeddedPropertyRepository();
+        repository.save(residential("1 Oak St", 1990));
+        repository.save(residential("2 Oak St", 2000));
+
+        try (Stream<Property> properties = repository.stream()) {
+            assertEquals(Arrays.asList("1 Oak St", "2 Oak St"),
+                    properties.map(Property::getAddress).collect(Collectors.toList()));
+        }
+        List<String> visited = new ArrayList<>();
+        repository.forEach(property -> visited.add(property.getAddress()));
+        assertEquals(Arrays.asList("1 Oak St", "2 Oak St"), visited);
+    }
+
+    @Test
+    public void testIndexedQueriesReturnCopies() throws Exception {
+        EmbeddedPropertyRepository repository = new EmbeddedPropertyRepository();
+        repository.save(residential("1 Oak St", 1990));
+        repository.save(new CommercialProperty("2 Main St", 5000, 0, 1, 2010, 5000, true, 5));
+        repository.save(residential("3 Elm St", 2015));
+        repository.save(new IndustrialProperty("4 Dock Rd", 9000, 0, 1, 2000, 500, true, "HEAVY"));
+
+        assertEquals(2, repository.findByType("RESIDENTIAL").size());
+        assertEquals(2, repository.findByYearBuiltBetween(2000, 2010).size());
+        assertEquals(1, repository.findByAreaBetween(4000, 6000).size());
+        assertTrue("Reversed range should be empty", repository.findByYearBuiltBetween(2010, 2000).isEmpty());
+        assertTrue("Reversed range should be empty", repository.findByAreaBetween(6000, 4000).isEmpty());
+
+        Page<Property> first = repository.findPage(0, 3);
+        assertEquals(3, first.size());
+        assertTrue(first.hasMore());
+        assertEquals(4, repository.findPage(first.getLast().getPropertyId(), 3).getLast().getPropertyId());
+
+        Property copy = repository.findById(1);
+        copy.setAddress("changed");
+        assertEquals("1 Oak St", repository.findById(1).getAddress());
+        assertTrue(((ResidentialProperty) repository.findById(1)).isHasGarage());
+    }
+
+    @Test
+    public void testFindersMatchTheQueriesTheyIndex() throws Exception {
+        EmbeddedPropertyRepository repository = new EmbeddedPropertyRepository();
+        repository.save(residential("1 Oak St", 2000));
+        repository.save(new CommercialProperty("2 Main St", 2000, 0, 1, 2005, 5000, true, 5));
+        repository.save(residential("3 Elm St", 2010));
+        repository.save(residential("4 Elm St", 1999));
+
+        assertEquals(Arrays.asList(1, 3, 4), propertyIds(repository.findByType("RESIDENTIAL")));
+        assertTrue(repository.findByType("INDUSTRIAL").isEmpty());
+        assertTrue(repository.findByType("UNKNOWN").isEmpty());
+
+        assertEquals("Year range includes both ends", Arrays.asList(1, 2, 3),
+                propertyIds(repository.findByYearBuiltBetween(2000, 2010)));
+        assertEquals("Area range includes both ends", 4, repository.findByAreaBetween(2000, 2000).size());
+        assertTrue(repository.findByAreaBetween(2000.5, 3000).isEmpty());
+
+        EmbeddedPredictionResultRepository predictions = new EmbeddedPredictionResultRepository();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        int[] minutes = {30, 10, 10, 20};
+        for (int minute : minutes) {
+            PredictionResult result = new PredictionResult(7, 100000 + minute, "Linear");
+            result.setPredictionDate(base.plusMinutes(minute));
+            predictions.save(result);
+        }
+        predictions.save(new PredictionResult(8, 90000, "Linear"));
+
+        List<Integer> ids = new ArrayList<>();
+        for (PredictionResult result : predictions.findByPropertyId(7)) {
+            ids.add(result.getPredictionId());
+        }
+        assertEquals("Ordered by prediction_date, then prediction_id", Arrays.asList(2, 3, 4, 1), ids);
+    }
+
+    private static List<Integer> propertyIds(List<Property> properties) {
+        List<Integer> ids = new ArrayList<>();
+        for (Property property : properties) {
+            ids.add(property.getPropertyId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testStateSurvivesReopenWithSnapshotAndLog() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        EmbeddedPropertyRepository repository = new EmbeddedPropertyRepository(dir, 3, false);
+        for (int i = 1; i <= 5; i++) {
+            repository.save(residential(i + " Oak St", 2000 + i));
+        }
+        repository.delete(2);
+        ResidentialProperty updated = residential("3 Oak St, renovated", 2003);
+        updated.setPropertyId(3);
+        repository.update(updated);
+        // Simulate a crash: no close(), the tail of the changes is only in the log
+
+        EmbeddedPropertyRepository reopened = new EmbeddedPropertyRepository(dir, 3, false);
+        assertEquals(4, reopened.count());
+        assertNull(reopened.findById(2));
+        assertEquals("3 Oak St, renovated", reopened.findById(3).getAddress());
+        assertEquals(1, reopened.findByYearBuiltBetween(2005, 2005).size());
+
+        ResidentialProperty next = residential("6 Oak St", 2006);
+        reopened.save(next);
+        assertEquals("Ids continue after the recovered maximum", 6, next.getPropertyId());
+        reopened.close();
+    }
+
+    @Test
+    public void testTornLogTailIsDiscarded() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        EmbeddedPredictionResultRepository repository = new EmbeddedPredictionResultRepository(dir, 1000, false);
+        repository.saveAll(Arrays.asList(
+                new PredictionResult(1, 100000, "Linear"),
+                new PredictionResult(1, 110000, "Neural")));
+        repository.save(new PredictionResult(2, 120000, "Linear"));
+
+        // Cut the last record in half as if the process died mid-write
+        File log = dir.resolve("predictions.log").toFile();
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        EmbeddedPredictionResultRepository reopened = new EmbeddedPredictionResultRepository(dir, 1000, false);
+        assertEquals(2, reopened.count());
+        assertEquals(2, reopened.findByPropertyId(1).size());
+        assertTrue(reopened.findByPropertyId(2).isEmpty());
+
+        reopened.save(new PredictionResult(2, 130000, "Linear"));
+        EmbeddedPredictionResultRepository again = new EmbeddedPredictionResultRepository(dir, 1000, false);
+        assertEquals("Appends after a repaired tail replay cleanly", 3, again.count());
+    }
+
+    @Test
+    public void testPredictionPagesFollowDateOrder() throws Exception {
+        EmbeddedPredictionResultRepository repository = new EmbeddedPredictionResultRepository();
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < 5; i++) {
+            PredictionResult result = new PredictionResult(i, 100000 + i, "Linear");
+            // Same timestamp for pairs so the id breaks ties
+            result.setPredictionDate(base.plusMinutes(4 - i / 2));
+            repository.save(result);
+        }
+
+        Page<PredictionResult> first = repository.findPage(null, 0, 2);
+        PredictionResult last = first.getLast();
+        Page<PredictionResult> second = repository.findPage(last.getPredictionDate(), last.getPredictionId(), 2);
+        List<PredictionResult> all = repository.findAll();
+
+        assertEquals(all.get(2).getPredictionId(), second.getItems().get(0).getPredictionId());
+        assertEquals(all.get(3).getPredictionId(), second.getLast().getPredictionId());
+        assertTrue(second.hasMore());
+        assertFalse(repository.findPage(all.get(4).getPredictionDate(), all.get(4).getPredictionId(), 2).hasMore());
+    }
+}
@@ -0,0 +1,57 @@
+package com.houseprice.test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+import com.houseprice.util.ExecutorFactory;
+
+/**
+ * Tests for the thread.mode selection of ExecutorFactory
+ */
+public class ExecutorFactoryTest {
+
+    private static Thread runOn(String mode) throws Exception {
+        ExecutorService executor = ExecutorFactory.newExecutor(mode, 2, "mode-test");
+        try {
+            return executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testPlatformModeUsesNamedNonDaemonThreads() throws Exception {
+        Thread worker = runOn("platform");
+
+        assertEquals("mode-test-1", worker.getName());
+        assertFalse("Platform threads should not be daemons", worker.isDaemon());
+        assertEquals("Mode should be case-insensitive", "mode-test-1", runOn("PLATFORM").getName());
+        assertEquals("Unknown modes should use platform threads", "mode-test-1", runOn("green").getName());
+    }
+
+    @Test
+    public void testVirtualAndAutoFallBackToPlatformWithoutVirtualThreads() throws Exception {
+        assumeFalse("Running on a JDK with virtual threads", ExecutorFactory.isVirtualThreadsSupported());
+
+        Thread virtual = runOn("virtual");
+        assertEquals("mode-test-1", virtual.getName());
+        assertFalse(virtual.isDaemon());
+        assertEquals("mode-test-1", runOn("auto").getName());
+    }
+
+    @Test
+    public void testVirtualAndAutoUseVirtualThreadsWhenSupported() throws Exception {
+        assumeTrue("Running on a JDK without virtual threads", ExecutorFactory.isVirtualThreadsSupported());
+
+        assertTrue("Virtual threads are unnamed by default", runOn("virtual").getName().isEmpty());
+        assertTrue(runOn("Auto").getName().isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package com.houseprice.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.service.PricePredictionEngine;
+import com.houseprice.store.OffHeapPropertyTable;
+
+/**
+ * Tests for the off-heap property table and its flyweight views
+ */
+public class OffHeapPropertyTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Property> sample() {
+        ResidentialProperty house = new ResidentialProperty("1 Oak St", 2000, 3, 2, 1990, 2, true, false);
+        house.setPropertyId(1);
+        CommercialProperty shop = new CommercialProperty("2 Main St", 5000, 0, 1, 2010, 5000, true, 5);
+        shop.setPropertyId(2);
+        IndustrialProperty plant = new IndustrialProperty("3 Dock Rd", 9000, 0, 1, 2000, 500, true, "HEAVY");
+        plant.setPropertyId(3);
+        return Arrays.asList(house, shop, plant);
+    }
+
+    @Test
+    public void testViewsPriceAndPredictLikeHeapObjects() throws Exception {
+        List<Property> properties = sample();
+        PricePredictionEngine engine = new PricePredictionEngine(2, 0, 0);
+        try (OffHeapPropertyTable table = new OffHeapPropertyTable(2)) {
+            double expectedSum = 0;
+            for (Property property : properties) {
+                table.append(property);
+                expectedSum += property.calculatePrice();
+            }
+            assertEquals(3, table.size());
+            assertEquals(expectedSum, table.sumPrices(), 0.001);
+
+            for (int row = 0; row < properties.size(); row++) {
+                Property heap = properties.get(row);
+                Property view = table.get(row);
+                assertTrue(heap.getClass().isInstance(view));
+                assertEquals(heap.getAddress(), view.getAddress());
+                assertEquals(heap.getPropertyType(), view.getPropertyType());
+                assertTrue(Arrays.equals(heap.getPricingFeatures(), view.getPricingFeatures()));
+
+                List<PredictionResult> fromHeap = engine.predictPrice(heap);
+                List<PredictionResult> fromView = engine.predictPrice(view);
+                for (int i = 0; i < fromHeap.size(); i++) {
+                    assertEquals(fromHeap.get(i).getPredictedPrice(), fromView.get(i).getPredictedPrice(), 0.001);
+                }
+            }
+            assertEquals("HEAVY", ((IndustrialProperty) table.get(2)).getZoneType());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testSetAndReopenMappedTable() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        try (OffHeapPropertyTable table = new OffHeapPropertyTable(dir, 1)) {
+            for (Property property : sample()) {
+                table.append(property);
+            }
+            // Grow past the initial mapping
+            for (int i = 0; i < 2000; i++) {
+                table.append(new ResidentialProperty(i + " Elm St", 1000 + i, 2, 1, 2000, 1, false, false));
+            }
+            ResidentialProperty renovated = (ResidentialProperty) table.copy(0);
+            renovated.setAddress("1 Oak St, renovated");
+            renovated.setHasGarden(true);
+            table.set(0, renovated);
+        }
+
+        try (OffHeapPropertyTable reopened = new OffHeapPropertyTable(dir, 1)) {
+            assertEquals(2003, reopened.size());
+            ResidentialProperty first = (ResidentialProperty) reopened.get(0);
+            assertEquals("1 Oak St, renovated", first.getAddress());
+            assertTrue(first.isHasGarden());
+            assertEquals("ACTIVE", first.getStatus());
+            assertEquals("1999 Elm St", reopened.get(2002).getAddress());
+            assertFalse(((ResidentialProperty) reopened.get(2002)).isHasGarage());
+            try {
+                first.setArea(1);
+                fail("Views must be read-only");
+            } catch (UnsupportedOperationException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testViewsSerializeAsHeapCopies() throws Exception {
+        List<Property> properties = sample();
+        try (OffHeapPropertyTable table = new OffHeapPropertyTable(2)) {
+            for (Property property : properties) {
+                table.append(property);
+            }
+            for (int row = 0; row < properties.size(); row++) {
+                Property heap = properties.get(row);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(table.get(row));
+                }
+                Property restored;
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                    restored = (Property) in.readObject();
+                }
+
+                assertEquals("View should be replaced by its heap type", heap.getClass(), restored.getClass());
+                assertEquals(heap.getPropertyId(), restored.getPropertyId());
+                assertEquals(heap.getAddress(), restored.getAddress());
+                assertEquals(heap.getStatus(), restored.getStatus());
+                assertTrue(Arrays.equals(heap.getPricingFeatures(), restored.getPricingFeatures()));
+                assertEquals(heap.calculatePrice(), restored.calculatePrice(), 0.001);
+            }
+        }
+    }
+}
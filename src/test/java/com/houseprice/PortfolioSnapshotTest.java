@@ -0,0 +1,104 @@
+package com.houseprice.test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.houseprice.dao.EmbeddedPredictionResultRepository;
+import com.houseprice.dao.EmbeddedPropertyRepository;
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.service.PortfolioSnapshotter;
+import com.houseprice.store.PortfolioSnapshot;
+
+/**
+ * Tests for the portfolio snapshot file and its database fallback
+ */
+public class PortfolioSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTripKeepsSubtypesAndDates() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("portfolio.snapshot");
+        ResidentialProperty house = new ResidentialProperty("1 Oak St", 2000, 3, 2, 1990, 2, true, false);
+        house.setPropertyId(1);
+        CommercialProperty shop = new CommercialProperty("2 Main St", 5000, 0, 1, 2010, 5000, true, 5);
+        shop.setPropertyId(2);
+        IndustrialProperty plant = new IndustrialProperty("3 Dock Rd", 9000, 0, 1, 2000, 500, true, null);
+        plant.setPropertyId(3);
+        PredictionResult result = new PredictionResult(2, 750000, "Linear");
+        result.setPredictionId(7);
+        result.setPredictionDate(LocalDateTime.of(2024, 5, 1, 9, 30, 15, 123456789));
+
+        new PortfolioSnapshot(1234L, Arrays.<Property>asList(house, shop, plant), Collections.singletonList(result))
+                .write(file);
+        PortfolioSnapshot read = PortfolioSnapshot.read(file);
+
+        assertEquals(1234L, read.getCreatedAtMillis());
+        assertEquals(3, read.getProperties().size());
+        assertTrue(((ResidentialProperty) read.getProperties().get(0)).isHasGarage());
+        assertEquals(5, ((CommercialProperty) read.getProperties().get(1)).getMaxFloors());
+        assertNull(((IndustrialProperty) read.getProperties().get(2)).getZoneType());
+        assertEquals("2 Main St", read.getProperties().get(1).getAddress());
+        PredictionResult readResult = read.getPredictions().get(0);
+        assertEquals(7, readResult.getPredictionId());
+        assertEquals(result.getPredictionDate(), readResult.getPredictionDate());
+        assertEquals(750000, readResult.getPredictedPrice(), 0.0);
+    }
+
+    @Test
+    public void testCorruptOrStaleSnapshotFallsBackToRepositories() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("portfolio.snapshot");
+        EmbeddedPropertyRepository properties = new EmbeddedPropertyRepository();
+        EmbeddedPredictionResultRepository predictions = new EmbeddedPredictionResultRepository();
+        properties.save(new ResidentialProperty("1 Oak St", 2000, 3, 2, 1990, 2, true, false));
+        predictions.save(new PredictionResult(1, 300000, "Linear"));
+        PredictionResult old = new PredictionResult(1, 250000, "Linear");
+        old.setPredictionDate(LocalDateTime.now().minusDays(30));
+        predictions.save(old);
+
+        PortfolioSnapshotter snapshotter = new PortfolioSnapshotter(properties, predictions, file,
+                60_000, 7L * 24 * 60 * 60 * 1000);
+        PortfolioSnapshot built = snapshotter.load();
+        assertEquals(1, built.getProperties().size());
+        assertEquals("Predictions outside the window are left out", 1, built.getPredictions().size());
+
+        // Flip a body byte; the checksum rejects the file and load() rebuilds it
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xFF);
+        }
+        try {
+            PortfolioSnapshot.read(file);
+            fail("Corrupt snapshot was accepted");
+        } catch (IOException expected) {
+            // expected
+        }
+        properties.save(new ResidentialProperty("2 Oak St", 2100, 3, 2, 1995, 2, false, true));
+        assertEquals(2, snapshotter.load().getProperties().size());
+        assertEquals(2, PortfolioSnapshot.read(file).getProperties().size());
+
+        // An old but valid snapshot is not trusted either
+        new PortfolioSnapshot(System.currentTimeMillis() - 120_000, Collections.<Property>emptyList(),
+                Collections.<PredictionResult>emptyList()).write(file);
+        assertEquals(2, snapshotter.load().getProperties().size());
+    }
+}
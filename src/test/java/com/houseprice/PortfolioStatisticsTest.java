@@ -0,0 +1,149 @@
+package com.houseprice.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.houseprice.dao.EmbeddedPredictionResultRepository;
+import com.houseprice.dao.EmbeddedPropertyRepository;
+import com.houseprice.model.PriceStatistics;
+import com.houseprice.model.Property;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.service.PortfolioStatistics;
+import com.houseprice.service.PropertyService;
+
+/**
+ * Tests for incrementally maintained portfolio statistics
+ */
+public class PortfolioStatisticsTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private List<PriceStatistics> rows = new ArrayList<>(Arrays.asList(
+            new PriceStatistics("RESIDENTIAL", 3, 450000, 100000, 200000),
+            new PriceStatistics("COMMERCIAL", 1, 500000, 500000, 500000)));
+
+    private PortfolioStatistics newStatistics() {
+        return new PortfolioStatistics(() -> {
+            loads.incrementAndGet();
+            return rows;
+        });
+    }
+
+    @Test
+    public void testChangesAreAppliedWithoutReloading() throws Exception {
+        PortfolioStatistics statistics = newStatistics();
+        assertEquals(950000.0 / 4, statistics.overall().getAverage(), 0.001);
+
+        statistics.onAdd("RESIDENTIAL", 400000);
+        statistics.onUpdate("COMMERCIAL", 500000, "COMMERCIAL", 600000);
+        statistics.onAdd("INDUSTRIAL", 50000);
+
+        PriceStatistics residential = statistics.get("RESIDENTIAL");
+        assertEquals(4, residential.getCount());
+        assertEquals(850000, residential.getSum(), 0.001);
+        assertEquals(400000, residential.getMax(), 0.001);
+        assertEquals(600000, statistics.get("COMMERCIAL").getMin(), 0.001);
+        assertEquals(6, statistics.overall().getCount());
+        assertEquals(50000, statistics.overall().getMin(), 0.001);
+        assertEquals("Only the first read should hit the loader", 1, loads.get());
+    }
+
+    @Test
+    public void testRemovingAnExtremeReloads() throws Exception {
+        PortfolioStatistics statistics = newStatistics();
+        statistics.overall();
+
+        statistics.onRemove("RESIDENTIAL", 150000);
+        assertEquals(2, statistics.get("RESIDENTIAL").getCount());
+        assertEquals(1, loads.get());
+
+        rows = Arrays.asList(new PriceStatistics("RESIDENTIAL", 1, 100000, 100000, 100000));
+        statistics.onRemove("COMMERCIAL", 500000);
+        statistics.onRemove("RESIDENTIAL", 200000);
+        assertEquals(100000, statistics.get("RESIDENTIAL").getMax(), 0.001);
+        assertEquals(2, loads.get());
+        assertEquals(0, statistics.get("COMMERCIAL").getCount());
+    }
+
+    @Test
+    public void testChangeDuringLoadIsNotCountedTwice() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PortfolioStatistics statistics = new PortfolioStatistics(() -> {
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                release.await();
+            }
+            return rows;
+        });
+        CompletableFuture<PriceStatistics> firstRead = CompletableFuture.supplyAsync(() -> {
+            try {
+                return statistics.overall();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // The query is running outside the lock, and the row lands before its snapshot
+        statistics.beginChange();
+        rows = Arrays.asList(
+                new PriceStatistics("RESIDENTIAL", 4, 850000, 100000, 400000),
+                new PriceStatistics("COMMERCIAL", 1, 500000, 500000, 500000));
+        statistics.onAdd("RESIDENTIAL", 400000);
+        statistics.endChange();
+        release.countDown();
+
+        assertEquals(5, firstRead.get(5, TimeUnit.SECONDS).getCount());
+        assertEquals(5, statistics.overall().getCount());
+        assertEquals("The racing load must not be kept", 2, loads.get());
+        assertEquals(5, statistics.overall().getCount());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testConcurrentUpdatesOfOnePropertyApplyOneDeltaEach() throws Exception {
+        EmbeddedPropertyRepository repository = new EmbeddedPropertyRepository();
+        PropertyService service = new PropertyService(repository, new EmbeddedPredictionResultRepository());
+        // Cheapest and dearest rows stay put, so no update removes an extreme and forces a reload
+        service.addProperty(new ResidentialProperty("1 Low St", 10, 0, 0, 2024, 1, false, false));
+        service.addProperty(new ResidentialProperty("2 High St", 100000, 9, 9, 2024, 1, true, true));
+        service.addProperty(new ResidentialProperty("3 Busy St", 2000, 3, 2, 2000, 1, false, false));
+        int id = repository.findByType("RESIDENTIAL").get(2).getPropertyId();
+        service.getPriceStatistics("RESIDENTIAL");
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> updates = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                int area = 2000 + i;
+                updates.add(pool.submit(() -> {
+                    Property property = new ResidentialProperty("3 Busy St", area, 3, 2, 2000, 1, false, false);
+                    property.setPropertyId(id);
+                    service.updateProperty(property);
+                    return null;
+                }));
+            }
+            for (Future<?> update : updates) {
+                update.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        PriceStatistics expected = repository.aggregatePrices().get(0);
+        PriceStatistics actual = service.getPriceStatistics("RESIDENTIAL");
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum(), 0.001);
+    }
+}
@@ -0,0 +1,158 @@
+package com.houseprice.test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.houseprice.dao.PredictionResultDAO;
+import com.houseprice.exception.DatabaseException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.util.ConnectionPool;
+import com.houseprice.util.DatabaseConnection;
+
+/**
+ * Tests for the batched saveAll of PredictionResultDAO against fake JDBC objects
+ */
+public class PredictionResultDAOTest {
+    private final List<String> events = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private int failingBatch = -1;
+    private int updateCount = Statement.SUCCESS_NO_INFO;
+    private boolean autoCommit = true;
+    private ConnectionPool pool;
+    private PredictionResultDAO dao;
+
+    @Before
+    public void setUp() {
+        System.setProperty("db.batch.size", "2");
+        ConnectionPool.Settings settings = new ConnectionPool.Settings()
+                .initialSize(0)
+                .minIdle(0)
+                .maxSize(1)
+                .validationIntervalMillis(0)
+                .maintenanceIntervalMillis(0);
+        pool = new ConnectionPool(this::fakeConnection, settings);
+        dao = new PredictionResultDAO(new DatabaseConnection(pool));
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("db.batch.size");
+        pool.close();
+    }
+
+    private static List<PredictionResult> results(int count) {
+        List<PredictionResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(new PredictionResult(i + 1, 100000 + i, "LINEAR_REGRESSION"));
+        }
+        return results;
+    }
+
+    private Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setAutoCommit":
+                            autoCommit = (Boolean) args[0];
+                            events.add("autoCommit=" + autoCommit);
+                            return null;
+                        case "getAutoCommit":
+                            return autoCommit;
+                        case "commit":
+                        case "rollback":
+                            events.add(method.getName());
+                            return null;
+                        case "isValid":
+                            return true;
+                        case "isClosed":
+                            return false;
+                        case "prepareStatement":
+                            return fakeStatement();
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private PreparedStatement fakeStatement() {
+        int[] pending = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addBatch":
+                            pending[0]++;
+                            return null;
+                        case "executeBatch":
+                            batchSizes.add(pending[0]);
+                            if (batchSizes.size() == failingBatch) {
+                                throw new SQLException("Duplicate entry");
+                            }
+                            int[] counts = new int[pending[0]];
+                            Arrays.fill(counts, updateCount);
+                            pending[0] = 0;
+                            return counts;
+                        default:
+                            Class<?> type = method.getReturnType();
+                            if (type == boolean.class) {
+                                return Boolean.FALSE;
+                            }
+                            return type == int.class ? Integer.valueOf(0) : null;
+                    }
+                });
+    }
+
+    @Test
+    public void testSaveAllFlushesEveryBatchSizeRowsInOneTransaction() throws Exception {
+        int saved = dao.saveAll(results(5));
+
+        assertEquals("Rewritten batches report SUCCESS_NO_INFO per inserted row", 5, saved);
+        assertEquals(Arrays.asList(2, 2, 1), batchSizes);
+        assertEquals(Arrays.asList("autoCommit=false", "commit", "autoCommit=true"), events);
+    }
+
+    @Test
+    public void testSaveAllCountsOnlyInsertedRows() throws Exception {
+        updateCount = 0;
+        assertEquals(0, dao.saveAll(results(3)));
+
+        updateCount = 1;
+        assertEquals(3, dao.saveAll(results(3)));
+    }
+
+    @Test
+    public void testFailedBatchRollsBackEverything() {
+        failingBatch = 2;
+        try {
+            dao.saveAll(results(5));
+            fail("Failed batch should be reported");
+        } catch (DatabaseException expected) {
+            // expected
+        }
+
+        assertEquals("Later rows should not be sent after a failure", Arrays.asList(2, 2), batchSizes);
+        assertTrue(events.contains("rollback"));
+        assertFalse(events.contains("commit"));
+        assertTrue("Connection should return to auto-commit", autoCommit);
+    }
+
+    @Test
+    public void testEmptySaveAllDoesNotTouchTheDatabase() throws Exception {
+        assertEquals(0, dao.saveAll(new ArrayList<>()));
+        assertTrue(events.isEmpty());
+        assertEquals(0, pool.getStats().getAcquireCount());
+    }
+}
@@ -0,0 +1,183 @@
+package com.houseprice.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.houseprice.dao.IRepository;
+import com.houseprice.exception.HousePriceException;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.service.PredictionWriteBehind;
+
+/**
+ * Tests for the prediction write-behind queue
+ */
+public class PredictionWriteBehindTest {
+
+    /**
+     * Records each saveAll batch, optionally blocking until released
+     */
+    private static class RecordingRepository implements IRepository<PredictionResult> {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        final List<PredictionResult> saved = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch release;
+
+        RecordingRepository(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public int saveAll(Collection<PredictionResult> entities) throws Exception {
+            release.await();
+            batchSizes.add(entities.size());
+            saved.addAll(entities);
+            return entities.size();
+        }
+
+        @Override
+        public boolean save(PredictionResult entity) throws Exception {
+            return saveAll(Collections.singletonList(entity)) == 1;
+        }
+
+        @Override
+        public boolean update(PredictionResult entity) {
+            return false;
+        }
+
+        @Override
+        public PredictionResult findById(int id) {
+            return null;
+        }
+
+        @Override
+        public List<PredictionResult> findAll() {
+            return new ArrayList<>(saved);
+        }
+
+        @Override
+        public boolean delete(int id) {
+            return false;
+        }
+
+        @Override
+        public int count() {
+            return saved.size();
+        }
+    }
+
+    private static List<PredictionResult> results(int count) {
+        List<PredictionResult> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(new PredictionResult(i, 100000 + i, "Test"));
+        }
+        return results;
+    }
+
+    @Test
+    public void testShutdownFlushesQueuedResults() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingRepository repository = new RecordingRepository(release);
+        PredictionWriteBehind writer = new PredictionWriteBehind(repository, 1000, 10, 10_000, 1000);
+
+        writer.enqueue(results(25));
+        assertEquals("Nothing should be written while the database is blocked", 0, repository.saved.size());
+
+        release.countDown();
+        assertTrue(writer.shutdown(5, TimeUnit.SECONDS));
+
+        assertEquals(25, repository.saved.size());
+        assertEquals(25, writer.getWrittenCount());
+        for (int size : repository.batchSizes) {
+            assertTrue("Batches should not exceed the batch size", size <= 10);
+        }
+    }
+
+    @Test
+    public void testPartialBatchIsFlushedAfterInterval() throws Exception {
+        RecordingRepository repository = new RecordingRepository(new CountDownLatch(0));
+        PredictionWriteBehind writer = new PredictionWriteBehind(repository, 1000, 500, 20, 1000);
+
+        writer.enqueue(results(3));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (repository.saved.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals("Partial batch should be written once the interval passes", 3, repository.saved.size());
+        writer.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testFullQueueFallsBackToCallerWrite() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingRepository repository = new RecordingRepository(release);
+        PredictionWriteBehind writer = new PredictionWriteBehind(repository, 2, 1, 10_000, 200);
+
+        // Writer takes the first result and blocks, the next two fill the queue
+        writer.enqueue(results(3));
+        Thread caller = new Thread(() -> {
+            try {
+                writer.enqueue(Arrays.asList(new PredictionResult(99, 1, "Overflow")));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        caller.start();
+        // Let the caller's offer time out so it writes on its own thread
+        Thread.sleep(400);
+        release.countDown();
+        caller.join(5000);
+
+        assertTrue(writer.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(4, repository.saved.size());
+        assertEquals(1, writer.getCallerWriteCount());
+    }
+
+    @Test
+    public void testEnqueueRacingShutdownIsWrittenOrRejected() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            RecordingRepository repository = new RecordingRepository(new CountDownLatch(0));
+            PredictionWriteBehind writer = new PredictionWriteBehind(repository, 1000, 10, 5, 1000);
+            AtomicInteger accepted = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService producers = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                futures.add(producers.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        try {
+                            writer.enqueue(results(1));
+                            accepted.incrementAndGet();
+                        } catch (HousePriceException rejected) {
+                            return null;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            Thread.sleep(round % 3);
+            boolean flushed = writer.shutdown(5, TimeUnit.SECONDS);
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            producers.shutdown();
+
+            assertTrue(flushed);
+            assertEquals("Every accepted result must be written", accepted.get(), repository.saved.size());
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package com.houseprice.test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
 import com.houseprice.model.ResidentialProperty;
+import com.houseprice.service.PartialPrediction;
 import com.houseprice.service.PricePredictionEngine;
+import com.houseprice.service.algorithm.LinearRegressionAlgorithm;
+import com.houseprice.service.algorithm.PredictionAlgorithm;
 
 /**
  * Tests for multithreading in PricePredictionEngine
@@ -64,4 +80,286 @@ public class PricePredictionEngineTest {
         cached = engine.getCachedPredictions(property.getPropertyId());
         assertEquals("Cache should be empty", 0, cached.size());
     }
+
+    @Test
+    public void testBatchPredictionsKeepInputOrder() throws Exception {
+        List<ResidentialProperty> properties = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            ResidentialProperty property = new ResidentialProperty(
+                    i + " Batch St", 1000 + i * 100, 3, 2, 2010, 1, true, false);
+            property.setPropertyId(i);
+            properties.add(property);
+        }
+
+        List<List<PredictionResult>> batch = engine.predictBatch(properties, 3);
+        assertEquals("Should have one result list per property", 10, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            List<PredictionResult> results = batch.get(i);
+            assertEquals("Should have 3 algorithm predictions", 3, results.size());
+            assertEquals("Results should follow input order", i + 1, results.get(0).getPropertyId());
+            assertEquals("Batch should match single prediction",
+                    engine.predictPrice(properties.get(i)).get(0).getPredictedPrice(),
+                    results.get(0).getPredictedPrice(), 0.0001);
+        }
+
+        Iterator<List<PredictionResult>> streamed = engine.predictBatch(properties.iterator(), 4);
+        int expectedId = 1;
+        while (streamed.hasNext()) {
+            assertEquals("Streamed results should follow input order",
+                    expectedId++, streamed.next().get(0).getPropertyId());
+        }
+        assertEquals("Streaming should cover every property", 11, expectedId);
+    }
+
+    @Test
+    public void testCacheIsBoundedWithLruEviction() throws Exception {
+        PricePredictionEngine bounded = new PricePredictionEngine(2, 2, 0);
+        try {
+            for (int id = 1; id <= 3; id++) {
+                ResidentialProperty property = new ResidentialProperty(
+                        id + " Bounded St", 1500, 2, 1, 2012, 1, false, false);
+                property.setPropertyId(id);
+                bounded.predictPrice(property);
+                if (id == 2) {
+                    // Touch property 1 so property 2 becomes least recently used
+                    bounded.getCachedPredictions(1);
+                }
+            }
+
+            assertEquals("Recently used entry should survive", 3, bounded.getCachedPredictions(1).size());
+            assertEquals("Least recently used entry should be evicted", 0, bounded.getCachedPredictions(2).size());
+            assertEquals("Newest entry should be cached", 3, bounded.getCachedPredictions(3).size());
+            assertEquals("One eviction expected", 1, bounded.getCacheStats().getEvictionCount());
+            assertEquals("One miss expected", 1, bounded.getCacheStats().getMissCount());
+        } finally {
+            bounded.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdenticalFeaturesAreMemoized() throws Exception {
+        ResidentialProperty first = new ResidentialProperty(
+                "1 Memo St", 2200, 4, 3, 2001, 2, true, true);
+        first.setPropertyId(1);
+        ResidentialProperty twin = new ResidentialProperty(
+                "2 Memo St", 2200, 4, 3, 2001, 1, true, true);
+        twin.setPropertyId(2);
+
+        List<PredictionResult> original = engine.predictPrice(first);
+        List<PredictionResult> memoized = engine.predictPrice(twin);
+
+        assertEquals("Second prediction should hit the memo", 1, engine.getMemoStats().getHitCount());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.get(i).getAlgorithm(), memoized.get(i).getAlgorithm());
+            assertEquals(original.get(i).getPredictedPrice(), memoized.get(i).getPredictedPrice(), 0.0);
+            assertEquals("Memoized result should belong to the requested property",
+                    2, memoized.get(i).getPropertyId());
+        }
+
+        twin.setHasGarage(false);
+        engine.predictPrice(twin);
+        assertEquals("Changed pricing features should miss the memo", 1, engine.getMemoStats().getHitCount());
+    }
+
+    @Test
+    public void testNonDeterministicAlgorithmIsNotMemoized() throws Exception {
+        PredictionAlgorithm counter = new PredictionAlgorithm() {
+            private final AtomicInteger calls = new AtomicInteger();
+
+            @Override
+            public String getName() {
+                return "COUNTER";
+            }
+
+            @Override
+            public double getAccuracy() {
+                return 50;
+            }
+
+            @Override
+            public double predict(Property property) {
+                return calls.incrementAndGet();
+            }
+
+            @Override
+            public boolean isDeterministic() {
+                return false;
+            }
+        };
+        PricePredictionEngine custom = new PricePredictionEngine(
+                2, 0, 0, Arrays.asList(new LinearRegressionAlgorithm(), counter));
+        try {
+            ResidentialProperty property = new ResidentialProperty(
+                    "8 Clock St", 1200, 2, 1, 2000, 1, false, false);
+            double first = custom.predictPrice(property).get(1).getPredictedPrice();
+            double second = custom.predictPrice(property).get(1).getPredictedPrice();
+
+            assertNull("Memo should be off with a non-deterministic algorithm", custom.getMemoStats());
+            assertNotEquals(first, second, 0.0);
+        } finally {
+            custom.shutdown();
+        }
+    }
+
+    @Test
+    public void testCheapAlgorithmsRunInlineAndExpensiveOnesOffloaded() throws Exception {
+        Thread caller = Thread.currentThread();
+        PredictionAlgorithm threadProbe = new PredictionAlgorithm() {
+            @Override
+            public String getName() {
+                return "THREAD_PROBE";
+            }
+
+            @Override
+            public double getAccuracy() {
+                return 50;
+            }
+
+            @Override
+            public double predict(Property property) {
+                return Thread.currentThread() == caller ? 1 : 2;
+            }
+
+            @Override
+            public boolean isExpensive() {
+                return true;
+            }
+        };
+        PricePredictionEngine custom = new PricePredictionEngine(
+                2, 0, 0, Arrays.asList(new LinearRegressionAlgorithm(), threadProbe));
+        try {
+            ResidentialProperty property = new ResidentialProperty(
+                    "9 Plugin St", 1200, 2, 1, 2000, 1, false, false);
+            List<PredictionResult> results = custom.predictPrice(property);
+
+            assertEquals("Should have one prediction per algorithm", 2, results.size());
+            assertEquals("LINEAR_REGRESSION", results.get(0).getAlgorithm());
+            assertEquals("Expensive algorithm should run off the caller thread",
+                    2, results.get(1).getPredictedPrice(), 0.0);
+        } finally {
+            custom.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncPredictionCancelsStragglersAfterDeadline() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        PredictionAlgorithm slow = new SleepingAlgorithm(interrupted);
+        PricePredictionEngine custom = new PricePredictionEngine(
+                1, 0, 0, Arrays.asList(new LinearRegressionAlgorithm(), slow));
+        try {
+            ResidentialProperty property = new ResidentialProperty(
+                    "5 Async St", 1300, 2, 1, 2005, 1, false, false);
+            try {
+                custom.predictPriceAsync(property, 50, TimeUnit.MILLISECONDS).get();
+                assertFalse("Prediction should not finish before its deadline", true);
+            } catch (ExecutionException e) {
+                assertTrue("Deadline should surface as a timeout", e.getCause() instanceof TimeoutException);
+            }
+            assertTrue("Straggler should be cancelled", interrupted.await(5, TimeUnit.SECONDS));
+        } finally {
+            custom.shutdown();
+        }
+    }
+
+    @Test
+    public void testBudgetedPredictionReturnsPartialResults() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        PricePredictionEngine custom = new PricePredictionEngine(
+                1, 0, 0, Arrays.asList(new LinearRegressionAlgorithm(), new SleepingAlgorithm(interrupted)));
+        try {
+            ResidentialProperty property = new ResidentialProperty(
+                    "6 Budget St", 1400, 3, 2, 2003, 1, true, false);
+            PartialPrediction partial = custom.predictWithinBudget(property, 50, TimeUnit.MILLISECONDS);
+
+            assertFalse("Slow algorithm should not complete within budget", partial.isComplete());
+            assertEquals(1, partial.getResults().size());
+            assertEquals(PartialPrediction.Status.COMPLETE, partial.getStatus("LINEAR_REGRESSION"));
+            assertEquals(PartialPrediction.Status.MISSING, partial.getStatus("SLOW"));
+            assertTrue("Missing algorithm should be cancelled", interrupted.await(5, TimeUnit.SECONDS));
+        } finally {
+            custom.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsyncAndBudgetedPredictionsOffloadCheapAlgorithms() throws Exception {
+        Thread caller = Thread.currentThread();
+        CountDownLatch release = new CountDownLatch(1);
+        PredictionAlgorithm blocking = new PredictionAlgorithm() {
+            @Override
+            public String getName() {
+                return "BLOCKING";
+            }
+
+            @Override
+            public double getAccuracy() {
+                return 50;
+            }
+
+            @Override
+            public double predict(Property property) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Thread.currentThread() == caller ? 1 : 2;
+            }
+        };
+        PricePredictionEngine custom = new PricePredictionEngine(
+                1, 0, 0, Arrays.asList(new LinearRegressionAlgorithm(), blocking));
+        try {
+            ResidentialProperty property = new ResidentialProperty(
+                    "7 Async St", 1500, 3, 2, 2001, 1, false, false);
+            PartialPrediction partial = custom.predictWithinBudget(property, 50, TimeUnit.MILLISECONDS);
+            assertEquals("Cheap algorithms are subject to the budget too",
+                    PartialPrediction.Status.MISSING, partial.getStatus("BLOCKING"));
+
+            property.setArea(1600);
+            CompletableFuture<List<PredictionResult>> future = custom.predictPriceAsync(property);
+            assertFalse("Async prediction should not run on the caller thread", future.isDone());
+            release.countDown();
+            List<PredictionResult> results = future.get(5, TimeUnit.SECONDS);
+            assertEquals(2, results.get(1).getPredictedPrice(), 0.0);
+        } finally {
+            custom.shutdown();
+        }
+    }
+
+    /**
+     * Expensive algorithm that sleeps until interrupted
+     */
+    private static class SleepingAlgorithm implements PredictionAlgorithm {
+        private final CountDownLatch interrupted;
+
+        SleepingAlgorithm(CountDownLatch interrupted) {
+            this.interrupted = interrupted;
+        }
+
+        @Override
+        public String getName() {
+            return "SLOW";
+        }
+
+        @Override
+        public double getAccuracy() {
+            return 50;
+        }
+
+        @Override
+        public double predict(Property property) {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean isExpensive() {
+            return true;
+        }
+    }
 }
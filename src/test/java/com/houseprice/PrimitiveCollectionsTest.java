@@ -0,0 +1,100 @@
+package com.houseprice.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.houseprice.util.collection.IntArrayList;
+import com.houseprice.util.collection.IntDoubleMap;
+import com.houseprice.util.collection.IntObjectMap;
+
+/**
+ * Tests for the primitive int collections against their boxed equivalents
+ */
+public class PrimitiveCollectionsTest {
+
+    @Test
+    public void testIntDoubleMapMatchesHashMap() {
+        IntDoubleMap map = new IntDoubleMap(4);
+        Map<Integer, Double> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500) - 250;
+            double value = random.nextDouble();
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(!expected.containsKey(key), map.put(key, value));
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key) != null, map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.merge(key, value, Double::sum), map.addTo(key, value), 1e-9);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -250; key < 250; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, -1.0), map.get(key, -1.0), 1e-9);
+        }
+    }
+
+    @Test
+    public void testIntObjectMapMatchesHashMap() {
+        IntObjectMap<String> map = new IntObjectMap<>(4);
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            // A small key range forces collisions, removals and re-insertions
+            int key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -256; key < 256; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        Map<Integer, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void testSortedIntArrayList() {
+        IntArrayList list = new IntArrayList(1);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int value = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), list.addSorted(value));
+            } else {
+                assertEquals(expected.remove(value), list.removeSorted(value));
+            }
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+
+        list.clear();
+        list.addSorted(10);
+        list.addSorted(20);
+        list.addSorted(30);
+        assertEquals(0, list.indexAfter(5));
+        assertEquals(2, list.indexAfter(20));
+        assertEquals(3, list.indexAfter(30));
+        assertTrue(list.contains(20));
+        assertFalse(list.removeSorted(25));
+    }
+}
@@ -1,11 +1,17 @@
 package com.houseprice.test;
 
+import com.houseprice.dao.EmbeddedPredictionResultRepository;
+import com.houseprice.dao.EmbeddedPropertyRepository;
+import com.houseprice.dao.Page;
 import com.houseprice.model.*;
 import com.houseprice.service.*;
 import com.houseprice.exception.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -117,4 +123,76 @@ public class PropertyServiceTest {
         assertTrue(exception instanceof HousePriceException);
         assertTrue(exception instanceof ValidationException);
     }
+
+    @Test
+    public void testCachedPropertyIsReturnedAsCopy() throws Exception {
+        PropertyService service = new PropertyService(
+                new EmbeddedPropertyRepository(), new EmbeddedPredictionResultRepository());
+        ResidentialProperty property = new ResidentialProperty("7 Copy Lane", 1500, 3, 2, 2012, 2, true, false);
+        service.addProperty(property);
+        int id = property.getPropertyId();
+
+        Property first = service.getPropertyById(id);
+        first.setAddress("changed");
+        ((ResidentialProperty) first).setHasGarage(false);
+        Property second = service.getPropertyById(id);
+
+        assertNotSame(first, second);
+        assertEquals("7 Copy Lane", second.getAddress());
+        assertTrue(((ResidentialProperty) second).isHasGarage());
+    }
+
+    @Test
+    public void testPropertyPagesWalkEveryRowOnce() throws Exception {
+        PropertyService service = new PropertyService(
+                new EmbeddedPropertyRepository(), new EmbeddedPredictionResultRepository());
+        for (int i = 1; i <= 5; i++) {
+            service.addProperty(new ResidentialProperty(i + " Page St", 1000 + i, 2, 1, 2000, 1, false, false));
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        List<Boolean> hasMore = new ArrayList<>();
+        Page<Property> page = service.getPropertiesPage(0, 2);
+        while (true) {
+            page.getItems().forEach(property -> ids.add(property.getPropertyId()));
+            hasMore.add(page.hasMore());
+            if (!page.hasMore()) {
+                break;
+            }
+            page = service.getPropertiesPage(page.getLast().getPropertyId(), 2);
+        }
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids);
+        assertEquals(Arrays.asList(true, true, false), hasMore);
+        assertFalse("A page that ends on the last row has no next page",
+                service.getPropertiesPage(3, 2).hasMore());
+        assertEquals("Non-positive sizes use page.size", 5, service.getPropertiesPage(0, 0).size());
+        assertTrue(service.getPropertiesPage(5, 2).isEmpty());
+    }
+
+    @Test
+    public void testPredictionPagesBreakDateTiesById() throws Exception {
+        EmbeddedPredictionResultRepository predictions = new EmbeddedPredictionResultRepository();
+        PropertyService service = new PropertyService(new EmbeddedPropertyRepository(), predictions);
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            PredictionResult result = new PredictionResult(1, 200000 + i, "LINEAR_REGRESSION");
+            // Every result but the last shares one timestamp
+            result.setPredictionDate(i < 4 ? date : date.minusDays(1));
+            predictions.save(result);
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        Page<PredictionResult> page = service.getPredictionResultsPage(null, 0, 2);
+        while (true) {
+            page.getItems().forEach(result -> ids.add(result.getPredictionId()));
+            if (!page.hasMore()) {
+                break;
+            }
+            PredictionResult last = page.getLast();
+            page = service.getPredictionResultsPage(last.getPredictionDate(), last.getPredictionId(), 2);
+        }
+
+        assertEquals("Ordered by date, then id, without skipping tied rows", Arrays.asList(5, 1, 2, 3, 4), ids);
+    }
 }
@@ -0,0 +1,124 @@
+package com.houseprice.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.houseprice.util.ReadThroughCache;
+
+/**
+ * Tests for the read-through cache
+ */
+public class ReadThroughCacheTest {
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 0, key -> {
+            loads.incrementAndGet();
+            release.await();
+            return "property-" + key;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.get(7)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.getStats().getCoalescedCount() < 7 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("property-7", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals("Eight concurrent misses should produce one load", 1, loads.get());
+        assertEquals("property-7", cache.get(7));
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(1, cache.getStats().getLoadCount());
+    }
+
+    @Test
+    public void testInvalidateDuringLoadIsNotCached() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 0, key -> {
+            int seen = version.get();
+            if (seen == 0) {
+                loading.countDown();
+                release.await();
+            }
+            return "v" + seen;
+        });
+
+        Thread reader = new Thread(() -> {
+            try {
+                cache.get(1);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        reader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // A write lands while the old value is still being read
+        version.set(1);
+        cache.invalidate(1);
+        release.countDown();
+        reader.join(5000);
+
+        assertEquals("Stale load should not be published", "v1", cache.get(1));
+        assertEquals(2, cache.getStats().getLoadCount());
+    }
+
+    @Test
+    public void testMissingValueIsNotCached() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 0, key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertNull(cache.get(3));
+        assertNull(cache.get(3));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testSeededValuesKeepTheirAge() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(10, 200, key -> {
+            loads.incrementAndGet();
+            return "loaded";
+        });
+
+        cache.put(1, "fresh", 0);
+        cache.put(2, "stale", 500);
+        cache.put(3, "aging", 150);
+        assertEquals("fresh", cache.get(1));
+        assertEquals("Older than the ttl should not be cached", "loaded", cache.get(2));
+
+        Thread.sleep(100);
+        assertEquals("Should expire a ttl after it was read, not after it was seeded", "loaded", cache.get(3));
+        assertEquals("fresh", cache.get(1));
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,136 @@
+package com.houseprice.test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+import com.houseprice.model.CommercialProperty;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.ResidentialProperty;
+import com.houseprice.store.ScalarScoringKernel;
+import com.houseprice.store.ScoringKernel;
+import com.houseprice.store.ScoringKernels;
+
+/**
+ * Tests that bulk scoring kernels reproduce the model formulas bit for bit
+ */
+public class ScoringKernelTest {
+    private static final int ROWS = 1003; // not a multiple of any vector length
+
+    private final double[] area = new double[ROWS];
+    private final double[] bedrooms = new double[ROWS];
+    private final double[] yearBuilt = new double[ROWS];
+    private final double[] flagA = new double[ROWS];
+    private final double[] flagB = new double[ROWS];
+    private final double[] amount = new double[ROWS];
+
+    public ScoringKernelTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROWS; i++) {
+            area[i] = 300 + random.nextDouble() * 20000;
+            bedrooms[i] = random.nextInt(8);
+            yearBuilt[i] = 1900 + random.nextInt(125);
+            flagA[i] = random.nextBoolean() ? 1 : 0;
+            flagB[i] = random.nextBoolean() ? 1 : 0;
+            amount[i] = random.nextDouble() * 100000;
+        }
+    }
+
+    @Test
+    public void testScalarKernelMatchesModelFormulas() {
+        ScoringKernel kernel = new ScalarScoringKernel();
+        double[] out = new double[ROWS];
+
+        kernel.residentialPrices(area, bedrooms, yearBuilt, flagA, flagB, out, ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            ResidentialProperty property = new ResidentialProperty("R", area[i], (int) bedrooms[i], 1,
+                    (int) yearBuilt[i], 1, flagA[i] != 0, flagB[i] != 0);
+            assertEquals(property.calculatePrice(), out[i], 0.0);
+        }
+
+        kernel.commercialPrices(area, yearBuilt, amount, flagA, out, ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            CommercialProperty property = new CommercialProperty("C", area[i], 0, 1,
+                    (int) yearBuilt[i], amount[i], flagA[i] != 0, 1);
+            assertEquals(property.calculatePrice(), out[i], 0.0);
+        }
+
+        kernel.industrialPrices(area, yearBuilt, amount, flagB, out, ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            IndustrialProperty property = new IndustrialProperty("I", area[i], 0, 1,
+                    (int) yearBuilt[i], amount[i], flagB[i] != 0, "HEAVY");
+            assertEquals(property.calculatePrice(), out[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testSelectedKernelIsBitIdenticalToScalar() {
+        ScoringKernel reference = new ScalarScoringKernel();
+        ScoringKernel selected = ScoringKernels.get();
+        double[] expected = new double[ROWS];
+        double[] actual = new double[ROWS];
+
+        reference.residentialPrices(area, bedrooms, yearBuilt, flagA, flagB, expected, ROWS);
+        selected.residentialPrices(area, bedrooms, yearBuilt, flagA, flagB, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.commercialPrices(area, yearBuilt, amount, flagA, expected, ROWS);
+        selected.commercialPrices(area, yearBuilt, amount, flagA, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.industrialPrices(area, yearBuilt, amount, flagB, expected, ROWS);
+        selected.industrialPrices(area, yearBuilt, amount, flagB, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.featurePrices(area, bedrooms, flagA, yearBuilt, expected, ROWS);
+        selected.featurePrices(area, bedrooms, flagA, yearBuilt, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.linear(area, 95000, amount, -0.8, 4800000, expected, ROWS);
+        selected.linear(area, 95000, amount, -0.8, 4800000, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+    }
+
+    @Test
+    public void testSelectedKernelTruncatesLikeScalarOnNonIntegralInputs() {
+        ScoringKernel reference = new ScalarScoringKernel();
+        ScoringKernel selected = ScoringKernels.get();
+        Random random = new Random(7);
+        double[] odd = {2.5, -2.5, 0.999, -0.999, 1e12, -1e12, Double.NaN, 2030.7, 2024.5, -1.0};
+        double[] rooms = new double[ROWS];
+        double[] years = new double[ROWS];
+        double[] flags = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            // Fractional what-if values, years after 2024 (negative age) and out-of-range values
+            rooms[i] = i % 3 == 0 ? odd[random.nextInt(odd.length)] : random.nextInt(8) + random.nextDouble();
+            years[i] = i % 3 == 1 ? odd[random.nextInt(odd.length)] : 1900 + random.nextDouble() * 200;
+            flags[i] = i % 4 == 0 ? odd[random.nextInt(odd.length)] : random.nextInt(2);
+        }
+        double[] expected = new double[ROWS];
+        double[] actual = new double[ROWS];
+
+        reference.residentialPrices(area, rooms, years, flags, flagB, expected, ROWS);
+        selected.residentialPrices(area, rooms, years, flags, flagB, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.commercialPrices(area, years, amount, flags, expected, ROWS);
+        selected.commercialPrices(area, years, amount, flags, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.industrialPrices(area, years, amount, flags, expected, ROWS);
+        selected.industrialPrices(area, years, amount, flags, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+
+        reference.featurePrices(area, rooms, flags, years, expected, ROWS);
+        selected.featurePrices(area, rooms, flags, years, actual, ROWS);
+        assertBitIdentical(selected, expected, actual);
+    }
+
+    private static void assertBitIdentical(ScoringKernel kernel, double[] expected, double[] actual) {
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(kernel.getName() + " row " + i,
+                    Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.houseprice.test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+import com.houseprice.dao.PredictionResultDAO;
+import com.houseprice.dao.PropertyDAO;
+import com.houseprice.model.IndustrialProperty;
+import com.houseprice.model.PredictionResult;
+import com.houseprice.model.Property;
+import com.houseprice.util.StringDictionary;
+
+/**
+ * Tests for dictionary-encoded string columns
+ */
+public class StringDictionaryTest {
+
+    @Test
+    public void testEncodeDecodeAndLimit() {
+        StringDictionary dictionary = new StringDictionary("test", 2, "A");
+        assertEquals(0, dictionary.encode("A"));
+        assertEquals(StringDictionary.NULL, dictionary.codeOf("B"));
+        assertEquals(1, dictionary.encode(new String("B")));
+        assertEquals(1, dictionary.codeOf("B"));
+        assertNull(dictionary.decode(dictionary.encode(null)));
+        try {
+            dictionary.encode("C");
+            fail("Dictionary grew past its limit");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testModelsShareCanonicalStrings() {
+        PredictionResult first = new PredictionResult(1, 100000, new String("LINEAR_REGRESSION"));
+        PredictionResult second = new PredictionResult(2, 200000, new String("LINEAR_REGRESSION"));
+        assertSame(first.getAlgorithm(), second.getAlgorithm());
+        assertEquals(first.getAlgorithmCode(), second.getAlgorithmCode());
+
+        IndustrialProperty plant = new IndustrialProperty("1 Dock Rd", 9000, 0, 1, 2000, 500, true, "HEAVY");
+        assertEquals(Property.TYPE_INDUSTRIAL, plant.getTypeCode());
+        assertEquals(Property.TYPE_INDUSTRIAL, Property.typeCodeOf(plant.getPropertyType()));
+        assertEquals(Property.STATUSES.codeOf("ACTIVE"), plant.getStatusCode());
+        plant.setZoneType(null);
+        assertNull(plant.getZoneType());
+    }
+
+    @Test
+    public void testRowMappersKeepValuesPastTheLimit() throws Exception {
+        int rowCount = 1100;
+        List<Map<String, Object>> properties = new ArrayList<>();
+        List<Map<String, Object>> predictions = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, Object> property = new HashMap<>();
+            property.put("property_id", i);
+            property.put("property_type", "INDUSTRIAL");
+            property.put("status", "status-" + i);
+            property.put("zone_type", "zone-" + i);
+            properties.add(property);
+
+            Map<String, Object> prediction = new HashMap<>();
+            prediction.put("prediction_id", i);
+            prediction.put("algorithm", "algorithm-" + i);
+            prediction.put("status", "status-" + i);
+            prediction.put("prediction_date", new Timestamp(0));
+            predictions.add(prediction);
+        }
+
+        List<Property> mapped = PropertyDAO.mapRows(resultSet(properties, "property_id", "address", "area",
+                "bedrooms", "bathrooms", "year_built", "property_type", "status", "floors", "has_garage",
+                "has_garden", "rent_income", "has_parking", "max_floors", "load_capacity", "has_loading",
+                "zone_type"));
+        assertEquals(rowCount, mapped.size());
+        for (int i = 0; i < rowCount; i++) {
+            IndustrialProperty industrial = (IndustrialProperty) mapped.get(i);
+            assertEquals("status-" + i, industrial.getStatus());
+            assertEquals("zone-" + i, industrial.getZoneType());
+        }
+        assertEquals(StringDictionary.UNENCODED, mapped.get(rowCount - 1).getStatusCode());
+
+        List<PredictionResult> results = PredictionResultDAO.mapRows(resultSet(predictions, "prediction_id",
+                "property_id", "predicted_price", "actual_price", "accuracy", "algorithm", "status",
+                "prediction_date"));
+        assertEquals(rowCount, results.size());
+        for (int i = 0; i < rowCount; i++) {
+            assertEquals("algorithm-" + i, results.get(i).getAlgorithm());
+            assertEquals("status-" + i, results.get(i).getStatus());
+        }
+    }
+
+    /**
+     * Forward-only result set over rows keyed by column name, missing values read as SQL NULL
+     */
+    private static ResultSet resultSet(List<Map<String, Object>> rows, String... columns) {
+        List<String> columnNames = Arrays.asList(columns);
+        Iterator<Map<String, Object>> cursor = rows.iterator();
+        Object[] current = new Object[1];
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findColumn":
+                            return columnNames.indexOf(args[0]) + 1;
+                        case "next":
+                            current[0] = cursor.hasNext() ? cursor.next() : null;
+                            return current[0] != null;
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> row = (Map<String, Object>) current[0];
+                    Object value = row.get(columnNames.get((Integer) args[0] - 1));
+                    Class<?> type = method.getReturnType();
+                    if (value != null || !type.isPrimitive()) {
+                        return value;
+                    }
+                    return type == boolean.class ? Boolean.FALSE : type == double.class ? (Object) 0.0 : (Object) 0;
+                });
+    }
+}